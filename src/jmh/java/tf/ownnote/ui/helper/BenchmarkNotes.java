@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import tf.ownnote.ui.editor.HTMLEditor;
+import tf.ownnote.ui.notes.Note;
+import tf.ownnote.ui.tags.TagManager;
+
+/**
+ * Generator for note content of realistic sizes to be used in the benchmarks.
+ *
+ * Content consists of paragraphs of text with tasks, note links and - for larger notes -
+ * inline images that make up most of the size, as pasted screenshots do.
+ *
+ * @author thomas
+ */
+public class BenchmarkNotes {
+    public final static String GROUP_NAME = "Bench";
+    public final static int LINKED_NOTES = 10;
+
+    // pasted screenshots: images are ~80% of the content for notes > 64 KB
+    private final static int IMAGE_THRESHOLD = 64 * 1024;
+    private final static double IMAGE_RATIO = 0.8;
+    private final static int IMAGE_COUNT = 4;
+
+    private final static String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+        "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "&amp;", "&nbsp;"};
+
+    private BenchmarkNotes() {
+        super();
+    }
+
+    /**
+     * Set up a notes directory with some notes that can be used as link targets and init FileManager with it.
+     *
+     * @return the notes directory
+     * @throws IOException if files can't be written
+     */
+    public static Path initNotesPath() throws IOException {
+        final Path notesPath = Files.createTempDirectory("ownNoteBenchmark");
+        notesPath.toFile().deleteOnExit();
+
+        for (int i = 0; i < LINKED_NOTES; i++) {
+            final Path notePath = notesPath.resolve(getNoteFileName(i));
+            Files.writeString(notePath, "<p>Note " + i + "</p>", StandardCharsets.UTF_8);
+            notePath.toFile().deleteOnExit();
+        }
+
+        FileManager.getInstance().setCallback(null);
+        FileManager.getInstance().initNotesPath(notesPath.toString());
+
+        return notesPath;
+    }
+
+    public static Note getNote(final int index) {
+        return FileManager.getInstance().getNote(TagManager.getInstance().groupForName(GROUP_NAME, false), getNoteName(index));
+    }
+
+    public static String getNoteName(final int index) {
+        return "Note" + index;
+    }
+
+    public static String getNoteFileName(final int index) {
+        return "[" + GROUP_NAME + "] " + getNoteName(index) + "." + FileManager.NOTE_EXT;
+    }
+
+    /**
+     * Generate note content of the given size.
+     *
+     * Every 5th paragraph contains a task, every 7th a link to one of the LINKED_NOTES.
+     *
+     * @param size the (approximate) size in chars
+     * @param seed seed for the random generator - same seed, same content
+     * @return note content
+     */
+    public static String generateContent(final int size, final long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder result = new StringBuilder(size + 1024);
+
+        int textSize = size;
+        int imageSize = 0;
+        if (size > IMAGE_THRESHOLD) {
+            imageSize = (int) (size * IMAGE_RATIO) / IMAGE_COUNT;
+            textSize = size - imageSize * IMAGE_COUNT;
+        }
+        final int imagePos = textSize / (IMAGE_COUNT + 1);
+        int nextImage = imagePos;
+        int imagesAdded = 0;
+
+        int paragraph = 0;
+        int textLength = 0;
+        while (textLength < textSize) {
+            final int paragraphStart = result.length();
+            result.append("<p>");
+
+            if (paragraph % 5 == 0) {
+                result.append("<input type=\"checkbox\"");
+                if (random.nextBoolean()) {
+                    result.append(" checked=\"checked\"");
+                }
+                result.append("><!-- id=\"");
+                result.append(String.format("%012x", random.nextLong() & 0xffffffffffffL));
+                result.append("\"---status=\"OPEN\"---prio=\"LOW\" -->");
+            }
+
+            final int wordCount = 10 + random.nextInt(30);
+            for (int i = 0; i < wordCount; i++) {
+                if (i > 0) {
+                    result.append(' ');
+                }
+                result.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+
+            if (paragraph % 7 == 0) {
+                final String linkedNote = GROUP_NAME + "] " + getNoteName(random.nextInt(LINKED_NOTES));
+                result.append(" <a href=\"");
+                result.append(HTMLEditor.NOTE_HTML_LINK_TYPE);
+                result.append("[");
+                result.append(linkedNote);
+                result.append(".");
+                result.append(FileManager.NOTE_EXT);
+                result.append("\" target=\"dummy\" data-note=\"yes\">[");
+                result.append(linkedNote);
+                result.append("</a>");
+            }
+
+            result.append("</p>\n");
+            textLength += result.length() - paragraphStart;
+            paragraph++;
+
+            if (imageSize > 0 && imagesAdded < IMAGE_COUNT && textLength >= nextImage) {
+                appendImage(result, imageSize, random);
+                imagesAdded++;
+                nextImage += imagePos;
+            }
+        }
+
+        while (imageSize > 0 && imagesAdded < IMAGE_COUNT) {
+            appendImage(result, imageSize, random);
+            imagesAdded++;
+        }
+
+        return result.toString();
+    }
+
+    private static void appendImage(final StringBuilder content, final int size, final Random random) {
+        // base64 has 4 chars for 3 bytes
+        final byte[] data = new byte[size * 3 / 4];
+        random.nextBytes(data);
+
+        content.append("<p><img src=\"data:image/png;base64,");
+        content.append(Base64.getEncoder().encodeToString(data));
+        content.append("\" alt=\"screenshot\" /></p>\n");
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.commentdata;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate & base64 encoding of comment data - and back.
+ * 
+ * Deflater & Inflater aren't thread safe but expensive to create, so a small pool of them is kept.
+ * Anything that doesn't fit into the pool is end()-ed to release the native zlib memory.
+ * Output buffers grow as required - there is no limit on the size of the data.
+ * 
+ * @author thomas
+ */
+public class CommentDataCodec {
+    private final static int BUFFER_SIZE = 8192;
+    
+    private final static int POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    
+    // TFE, 20261017: no ThreadLocal - we run on virtual threads as well
+    private final static ArrayBlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final static ArrayBlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    
+    private CommentDataCodec() {
+        super();
+    }
+    
+    /**
+     * UTF-8 encode, deflate and base64 encode the data.
+     * 
+     * @param data the data
+     * @return the encoded data
+     */
+    public static String encode(final CharSequence data) {
+        final ByteBuffer input = StandardCharsets.UTF_8.encode(CharBuffer.wrap(data));
+        
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null) {
+            deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        }
+        
+        byte[] output = new byte[BUFFER_SIZE];
+        int length = 0;
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+
+            while (!deflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                length += deflater.deflate(output, length, output.length - length);
+            }
+        } finally {
+            // don't keep a reference to the input
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater)) {
+                deflater.end();
+            }
+        }
+        
+        return Base64.getEncoder().encodeToString(Arrays.copyOf(output, length));
+    }
+
+    /**
+     * Base64 decode, inflate and UTF-8 decode the data in the given range of the content.
+     * 
+     * @param content the content containing the encoded data
+     * @param start start of the encoded data
+     * @param end end of the encoded data
+     * @return the decoded data
+     * @throws DataFormatException if the data isn't valid base64 or isn't deflated
+     */
+    public static String decode(final CharSequence content, final int start, final int end) throws DataFormatException {
+        // base64 is ASCII - no need to create a substring first
+        final ByteBuffer encoded = StandardCharsets.ISO_8859_1.encode(CharBuffer.wrap(content, start, end));
+        // mime decoder ignores anything that isn't base64 - as the decoder from commons codec we used before
+        final ByteBuffer decoded;
+        try {
+            decoded = Base64.getMimeDecoder().decode(encoded);
+        } catch (IllegalArgumentException ex) {
+            // TFE, 20261017: e.g. misplaced padding - as corrupt as data that doesn't inflate
+            throw new DataFormatException(ex.getMessage());
+        }
+        
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        
+        byte[] output = new byte[BUFFER_SIZE];
+        int length = 0;
+        try {
+            inflater.setInput(decoded);
+
+            while (!inflater.finished()) {
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                final int inflated = inflater.inflate(output, length, output.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    // truncated data - take what we have
+                    break;
+                }
+                length += inflated;
+            }
+        } finally {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater)) {
+                inflater.end();
+            }
+        }
+        
+        return new String(output, 0, length, StandardCharsets.UTF_8);
+    }
+}
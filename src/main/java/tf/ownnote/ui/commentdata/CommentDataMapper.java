@@ -25,16 +25,12 @@
  */
 package tf.ownnote.ui.commentdata;
 
-import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
-import java.util.zip.Inflater;
-import org.apache.commons.codec.binary.Base64;
 
 /**
  * Helper for the mapping between html comments and data values.
@@ -52,9 +48,6 @@ public class CommentDataMapper {
     public static final String COMMENT_DATA_SEP = "---";
     public static final String COMMENT_VALUES_SEP = ":::";
 
-    private static final Deflater compresser = new Deflater(Deflater.BEST_COMPRESSION);
-    private static final Inflater decompresser = new Inflater();
-
     private CommentDataMapper() {
         super();
     }
@@ -72,8 +65,16 @@ public class CommentDataMapper {
     }
     
     public void fromComment(final ICommentDataHolder dataHolder, final String comment) {
-        final String [] data = extractData(dataHolder, comment);
-        
+        fromDecodedComment(dataHolder, extractData(dataHolder.getDataHolderInfo(), comment));
+    }
+    
+    // TFE, 20261017: split decoding (base64 & inflate) from setting the values
+    // decoding doesn't touch the data holder and can therefore be done in parallel, e.g. when scanning all notes on startup
+    public String [] decodeComment(final String comment, final String dataHolderInfo) {
+        return extractData(dataHolderInfo, comment);
+    }
+    
+    public void fromDecodedComment(final ICommentDataHolder dataHolder, final String [] data) {
         final ICommentDataInfo[] infos = dataHolder.getCommentDataInfo();
 
         // now we have the name - value pairs
@@ -142,33 +143,22 @@ public class CommentDataMapper {
     }
     
     public static String finalizeComment(final StringBuffer stringBuffer) {
-        try {
-            compresser.reset();
-            compresser.setInput(stringBuffer.toString().getBytes("UTF-8"));
-            compresser.finish();
-            
-            final byte[] temp = new byte[32768];
-            final int compressedDataLength = compresser.deflate(temp);
-            final byte[] output = new byte[compressedDataLength];
-            System.arraycopy(temp, 0, output, 0, compressedDataLength);
-            final String encodedResult = Base64.encodeBase64String(output);
+        // TFE, 20261017: thread safe & without size limit
+        final String encodedResult = CommentDataCodec.encode(stringBuffer);
 
-            // lets compress - if it is really shorter :-)
-            if (encodedResult.length() < stringBuffer.length()) {
-                stringBuffer.delete(0, stringBuffer.length());
-                stringBuffer.append("data");
-                stringBuffer.append("=\"");
-                stringBuffer.append(encodedResult);
-                stringBuffer.append("\"");
-            }
-        } catch (UnsupportedEncodingException ex) {
-            Logger.getLogger(CommentDataMapper.class.getName()).log(Level.SEVERE, null, ex);
+        // lets compress - if it is really shorter :-)
+        if (encodedResult.length() < stringBuffer.length()) {
+            stringBuffer.delete(0, stringBuffer.length());
+            stringBuffer.append("data");
+            stringBuffer.append("=\"");
+            stringBuffer.append(encodedResult);
+            stringBuffer.append("\"");
         }
         
         return CommentDataMapper.COMMENT_STRING_PREFIX + stringBuffer.toString() + CommentDataMapper.COMMENT_STRING_SUFFIX;
     }
     
-    private static String [] extractData(final ICommentDataHolder dataHolder, final String content) {
+    private static String [] extractData(final String dataHolderInfo, final String content) {
         final String contentString = content.split(COMMENT_STRING_SUFFIX)[0] + COMMENT_STRING_SUFFIX;
         String [] data = contentString.substring(COMMENT_STRING_PREFIX.length(), contentString.length()-COMMENT_STRING_SUFFIX.length()).
                 strip().split(COMMENT_DATA_SEP);
@@ -178,25 +168,19 @@ public class CommentDataMapper {
         String dataString = "";
         for (String nameValue : data) {
             if (nameValue.startsWith("data=\"") && nameValue.endsWith("\"")) {
-                final String[] values = nameValue.substring("data".length()+2, nameValue.length()-1).
-                    strip().split(COMMENT_VALUES_SEP);
-
-                decompresser.reset();
-                final byte[] decoded = Base64.decodeBase64(values[0]);
-                decompresser.setInput(decoded, 0, decoded.length);
+                final int dataStart = "data".length()+2;
+                int dataEnd = nameValue.indexOf(COMMENT_VALUES_SEP, dataStart);
+                if (dataEnd == -1) {
+                    dataEnd = nameValue.length()-1;
+                }
 
-                final byte[] temp = new byte[32768];
                 try {
-                    final int resultLength = decompresser.inflate(temp);
-
-                    final byte[] input = new byte[resultLength];
-                    System.arraycopy(temp, 0, input, 0, resultLength);
-
-                    dataString = new String(input, "UTF-8");
+                    // TFE, 20261017: thread safe & without size limit - and we might be called from multiple threads now
+                    dataString = CommentDataCodec.decode(nameValue, dataStart, dataEnd);
 
                     dataFound = true;
-                } catch (DataFormatException | UnsupportedEncodingException ex) {
-                    System.err.println("Exception when processing data holder: " + dataHolder.getDataHolderInfo());
+                } catch (DataFormatException ex) {
+                    System.err.println("Exception when processing data holder: " + dataHolderInfo);
                     Logger.getLogger(CommentDataMapper.class.getName()).log(Level.SEVERE, null, ex);
                 }
             }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.editor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import tf.ownnote.ui.helper.ContentChange;
+import tf.ownnote.ui.helper.FileContentChangeType;
+import tf.ownnote.ui.helper.IFileContentChangeSubscriber;
+import tf.ownnote.ui.notes.Note;
+
+/**
+ * Dispatch content changes of the editor to its subscribers.
+ * 
+ * Changes are collected until nothing has happened for the debounce window. Consecutive changes 
+ * of the same note are merged into one. The subscribers then prepare their update on a worker 
+ * thread and only the prepared updates are run on the FX thread - in order of the changes.
+ * 
+ * Anyone who needs the subscribers to be up to date (e.g. before saving a note) calls flush().
+ * 
+ * @author thomas
+ */
+public class ContentChangeDispatcher {
+    private final List<IFileContentChangeSubscriber> subscribers;
+    private final long debounceMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+        final Thread thread = new Thread(runnable, "ContentChangeDispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> scheduledDispatch;
+
+    // changes waiting for the end of the debounce window
+    private final List<PendingChange> pendingChanges = new ArrayList<>();
+    // updates prepared by the subscribers waiting to be run on the FX thread
+    private final Deque<List<BooleanSupplier>> preparedUpdates = new ArrayDeque<>();
+    // only one preparation at a time - otherwise we might get the order wrong
+    private final Object prepareLock = new Object();
+    
+    private static class PendingChange {
+        private final Note note;
+        private ContentChange change;
+
+        private PendingChange(final Note note, final ContentChange change) {
+            this.note = note;
+            this.change = change;
+        }
+    }
+
+    public ContentChangeDispatcher(final List<IFileContentChangeSubscriber> changeSubscribers, final Integer debounce) {
+        super();
+        
+        subscribers = changeSubscribers;
+        debounceMillis = Math.max(0, debounce);
+    }
+    
+    /**
+     * Add a change to the pending ones and (re-)start the debounce window.
+     * 
+     * @param note the note that has been changed
+     * @param change what has been changed
+     */
+    public void submit(final Note note, final ContentChange change) {
+        synchronized (pendingChanges) {
+            final PendingChange last = !pendingChanges.isEmpty() ? pendingChanges.get(pendingChanges.size() - 1) : null;
+            // only merge if the change is based on the result of the previous one
+            if (last != null && last.note == note && last.change.getNewContent() == change.getOldContent()) {
+                last.change = last.change.merge(change);
+            } else {
+                pendingChanges.add(new PendingChange(note, change));
+            }
+
+            if (scheduledDispatch != null) {
+                scheduledDispatch.cancel(false);
+            }
+            scheduledDispatch = executor.schedule(() -> {
+                prepareUpdates();
+                Platform.runLater(this::runUpdates);
+            }, debounceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    /**
+     * Process all pending changes right now. To be called on the FX thread.
+     */
+    public void flush() {
+        synchronized (pendingChanges) {
+            if (scheduledDispatch != null) {
+                scheduledDispatch.cancel(false);
+                scheduledDispatch = null;
+            }
+        }
+
+        prepareUpdates();
+        runUpdates();
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    private void prepareUpdates() {
+        synchronized (prepareLock) {
+            final List<PendingChange> changes;
+            synchronized (pendingChanges) {
+                changes = new ArrayList<>(pendingChanges);
+                pendingChanges.clear();
+            }
+            
+            for (PendingChange pending : changes) {
+                if (pending.change.isEmpty()) {
+                    continue;
+                }
+
+                final List<BooleanSupplier> updates = new ArrayList<>();
+                for (IFileContentChangeSubscriber subscriber : subscribers) {
+                    BooleanSupplier update;
+                    try {
+                        update = subscriber.prepareFileContentChange(FileContentChangeType.CONTENT_CHANGED, pending.note, pending.change);
+                    } catch (Exception ex) {
+                        Logger.getLogger(ContentChangeDispatcher.class.getName()).log(Level.SEVERE, null, ex);
+                        // do it the old way then
+                        update = () -> {
+                            return subscriber.processFileContentChange(FileContentChangeType.CONTENT_CHANGED, pending.note, pending.change);
+                        };
+                    }
+                    updates.add(update);
+                }
+
+                synchronized (preparedUpdates) {
+                    preparedUpdates.add(updates);
+                }
+            }
+        }
+    }
+    
+    private void runUpdates() {
+        List<BooleanSupplier> updates;
+        while (true) {
+            synchronized (preparedUpdates) {
+                updates = preparedUpdates.poll();
+            }
+            if (updates == null) {
+                break;
+            }
+
+            // subscribers can still break the propagation chain
+            for (BooleanSupplier update : updates) {
+                if (!update.getAsBoolean()) {
+                    break;
+                }
+            }
+        }
+    }
+}
@@ -25,9 +25,18 @@
  */
 package tf.ownnote.ui.editor;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.beans.property.BooleanProperty;
@@ -64,6 +73,7 @@ import tf.helper.javafx.TableMenuUtils;
 import tf.helper.javafx.TableViewPreferences;
 import tf.ownnote.ui.helper.CmdLineParameters;
 import tf.ownnote.ui.helper.EditorPreferences;
+import tf.ownnote.ui.helper.NoteSnapshot;
 import tf.ownnote.ui.main.OwnNoteEditor;
 import tf.ownnote.ui.notes.Note;
 import tf.ownnote.ui.tags.TagData;
@@ -88,6 +98,15 @@ public class EditorTableView implements IPreferencesHolder {
     // default: don't search in files
     private Boolean noteSearchMode = false;
     private Set<Note> noteSearchNotes;
+    
+    // TFE, 20261017: search in files runs in the background - a new search cancels the running one
+    private final static long SEARCH_BATCH_MILLIS = 100;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor((runnable) -> {
+        final Thread thread = new Thread(runnable, "NoteSearch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong searchGeneration = new AtomicLong(0);
 
     // TFE, 20201208: tag support to show only notes linked to tags
     private TagData tagFilter;
@@ -450,11 +469,7 @@ public class EditorTableView implements IPreferencesHolder {
 
     public void setNoteFilterText(final String filterValue) {
         noteSearchText = filterValue;
-        if(noteSearchMode) {
-            noteSearchNotes = myEditor.getNotesWithText(noteSearchText);
-        } else {
-            noteSearchNotes = null;
-        }
+        startNoteSearch();
 
         // force re-run of filtering since refilter() is a private method...
         setFilterPredicate();
@@ -462,15 +477,73 @@ public class EditorTableView implements IPreferencesHolder {
     
     public void setNoteFilterMode(final Boolean findInFiles) {
         noteSearchMode = findInFiles;
-        if(noteSearchMode) {
-            noteSearchNotes = myEditor.getNotesWithText(noteSearchText);
-        } else {
-            noteSearchNotes = null;
-        }
+        startNoteSearch();
+
         // force re-run of filtering since refilter() is a private method...
         setFilterPredicate();
     }
     
+    // TFE, 20261017: don't block typing while searching in files
+    // found notes are added in batches to the table as they come in
+    private void startNoteSearch() {
+        // whatever is still running is outdated now
+        final long searchId = searchGeneration.incrementAndGet();
+        
+        if (!noteSearchMode || noteSearchText == null || noteSearchText.isEmpty() || filteredData == null) {
+            // nothing to search for - show all
+            noteSearchNotes = null;
+            return;
+        }
+        
+        try {
+            Pattern.compile(noteSearchText);
+        } catch (PatternSyntaxException ex) {
+            // user is still typing a pattern...
+            noteSearchNotes = new HashSet<>();
+            return;
+        }
+        
+        noteSearchNotes = new HashSet<>();
+        final String searchText = noteSearchText;
+        // TFE, 20261017: the worker must not touch the notes - they belong to the FX thread
+        final List<NoteSnapshot> notes = myEditor.getNoteSnapshots(filteredData.getSource());
+        searchExecutor.submit(() -> {
+            final List<Note> batch = new ArrayList<>();
+            final long[] lastPublish = {System.currentTimeMillis()};
+            
+            try {
+                myEditor.findNotesWithText(searchText, notes, (note) -> {
+                    batch.add(note);
+                    if (System.currentTimeMillis() - lastPublish[0] > SEARCH_BATCH_MILLIS) {
+                        publishSearchResults(searchId, batch);
+                        lastPublish[0] = System.currentTimeMillis();
+                    }
+                }, () -> {
+                    return searchGeneration.get() != searchId;
+                });
+            } catch (Exception ex) {
+                Logger.getLogger(EditorTableView.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            publishSearchResults(searchId, batch);
+        });
+    }
+    
+    private void publishSearchResults(final long searchId, final List<Note> batch) {
+        if (batch.isEmpty() || searchGeneration.get() != searchId) {
+            return;
+        }
+
+        final List<Note> found = new ArrayList<>(batch);
+        batch.clear();
+        Platform.runLater(() -> {
+            // results of an old search?
+            if (searchGeneration.get() == searchId && noteSearchNotes != null) {
+                noteSearchNotes.addAll(found);
+                setFilterPredicate();
+            }
+        });
+    }
+    
     public void setFilterPredicate() {
         getTableView().setUserData(groupFilter);
         
@@ -514,11 +587,8 @@ public class EditorTableView implements IPreferencesHolder {
             // we find in files, so use name list
             if (noteSearchNotes != null) {
                 // compare note name & group name against list of matches
+                // TFE, 20261017: that is what Note.equals() does - no need to stream over all matches for every note
                 result = noteSearchNotes.contains(note);
-
-                result = (noteSearchNotes.stream().filter((t) -> {
-                    return (t.getNoteName().equals(note.getNoteName()) && t.getGroupName().equals(note.getGroupName()));
-                }).count() > 0);
             }
         } else {
             // If name filter text is empty, display all notes.
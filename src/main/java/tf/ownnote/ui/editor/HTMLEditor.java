@@ -42,7 +42,9 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -60,6 +62,9 @@ import javafx.event.EventHandler;
 import javafx.print.PrinterJob;
 import javafx.scene.Node;
 import javafx.scene.Parent;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuItem;
@@ -90,9 +95,15 @@ import org.apache.commons.lang3.SystemUtils;
 import org.unbescape.html.HtmlEscape;
 import tf.helper.general.ImageHelper;
 import tf.helper.javafx.UsefulKeyCodes;
+import tf.ownnote.ui.helper.ContentChange;
+import tf.ownnote.ui.helper.BackgroundTask;
+import tf.ownnote.ui.helper.EditorPreferences;
 import tf.ownnote.ui.helper.FileContentChangeType;
 import tf.ownnote.ui.helper.FileManager;
 import tf.ownnote.ui.helper.IFileContentChangeSubscriber;
+import tf.ownnote.ui.helper.ImageAttachments;
+import tf.ownnote.ui.helper.ImageCompressor;
+import tf.ownnote.ui.helper.NoteSnapshot;
 import tf.ownnote.ui.links.LinkManager;
 import tf.ownnote.ui.main.OwnNoteEditor;
 import tf.ownnote.ui.notes.Note;
@@ -129,6 +140,8 @@ public class HTMLEditor {
     private static final List<String> ATTACHMENT_LINK = List.of("Insert attachment link", "Anhang-Link einf\u00fcgen");
     private static final List<String> NOTE_LINK = List.of("Insert note link", "Note-Link einf\u00fcgen");
     private static final List<String> COMPRESS_IMAGES = List.of("Compress images", "Bilder komprimieren");
+    private static final List<String> COMPRESS_GROUP_IMAGES = List.of("Compress images in group", "Bilder der Gruppe komprimieren");
+    private static final List<String> MOVE_IMAGES = List.of("Move images of all notes to attachments", "Bilder aller Notizen in Anh\u00e4nge verschieben");
     private static final List<String> REPLACE_CHECKEDBOXES = List.of("Checked box -> " + TaskData.ARCHIVED_BOX, "Checked Box -> " + TaskData.ARCHIVED_BOX);
     private static final List<String> REPLACE_CHECKMARKS = List.of(TaskData.ARCHIVED_BOX + " -> Checked box", TaskData.ARCHIVED_BOX + " -> Checked Box");
     // TFE, 20240224: option to save embedded images into separat files
@@ -162,9 +175,15 @@ public class HTMLEditor {
     private OwnNoteEditor myEditor = null;
     
     private Note editedNote;
+    // TFE, 20261017: content to be fetched by the editor in setContentFromCallback()
+    private String contentToSet;
     
-    // linked list to maintain order of callbacks
-    private final List<IFileContentChangeSubscriber> changeSubscribers = new LinkedList<>();
+    // list to maintain order of callbacks
+    // TFE, 20261017: copy on write since the dispatcher runs through the list on its worker thread
+    private final List<IFileContentChangeSubscriber> changeSubscribers = new CopyOnWriteArrayList<>();
+    // TFE, 20261017: don't run all subscribers for every change callback from the editor
+    private final ContentChangeDispatcher changeDispatcher = 
+            new ContentChangeDispatcher(changeSubscribers, EditorPreferences.CONTENT_CHANGE_DEBOUNCE.getAsType());
     
     // TFE, 20181002: enums to support drag & drop
     // what do we need to do with a file that is dropped on us?
@@ -411,6 +430,14 @@ public class HTMLEditor {
             final String type = Files.probeContentType(file.toPath());
             //get html content
             final byte[] data = FileUtils.readFileToByteArray(file);
+
+            // TFE, 20261017: store image in the attachments directory and only reference it
+            if (EditorPreferences.EXTERNALIZE_IMAGES.getAsType()) {
+                final String fileName = ImageAttachments.getInstance().storeImage(data, type);
+                wrapExecuteScript(myWebEngine, "insertImageFile('" + replaceForEditor(ImageAttachments.getInstance().getImageUrl(fileName)) + "');");
+                return;
+            }
+
             final String base64data = Base64.encodeBase64String(data);
             
             //insert html
@@ -479,120 +506,151 @@ public class HTMLEditor {
     private void compressImages() {
         assert (myEditor != null);
         
-        String content = getNoteText();
-
-        // 1) find all images in the note
-        // "<img src='data:" + mediaType + ";base64," + mediaData + ">"
-        final LinkedList<Integer> images = new LinkedList<>();
-        final Matcher matcher = IMAGE_PATTERN.matcher(content);
-        while (matcher.find()) {
-            images.add(matcher.start());
+        if (editedNote == null) {
+            return;
         }
         
-        if (images.isEmpty()) {
-            // no images in this note
+        // TFE, 20261017: compress in the background - editor is blocked by the progress dialog in the meantime
+        final String content = getNoteText();
+        BackgroundTask.runWithProgress(myWebView.getScene().getWindow(), COMPRESS_IMAGES.get(getLanguage()), (progress) -> {
+            return ImageCompressor.getInstance().compressImages(content, progress);
+        }, (newContent) -> {
+            if (newContent != content) {
+                contentChanged(newContent);
+                editNote(editedNote, newContent, true);
+            }
+        });
+    }
+    
+    // TFE, 20261017: compress images of all notes in the group of the current note
+    private void compressGroupImages() {
+        assert (myEditor != null);
+        
+        if (editedNote == null) {
             return;
         }
         
-        // reverse list since file positions change during replace
+        final TagData group = editedNote.getGroup();
+        final List<Note> notes = FileManager.getInstance().getNotesList().stream().filter((t) -> {
+            return group.equals(t.getGroup());
+        }).collect(Collectors.toList());
+
+        processNoteTexts(notes, COMPRESS_GROUP_IMAGES.get(getLanguage()), (index, content) -> {
+            return ImageCompressor.getInstance().compressImages(content, null);
+        }, () -> {});
+    }
+    
+    // content of a note before & after processing - only kept for notes that have been changed
+    private static class ChangedNoteText {
+        private final Note note;
+        private final String oldContent;
+        private final String newContent;
         
-        Collections.reverse(images); 
-        for (int imageStart : images) {
-            // 2) create image from base64
-            final int imageEnd = content.indexOf(">", imageStart);
-            if (imageEnd == -1) {
-                // something wrong with this image...
-                continue;
-            }
-            final String imageString = content.substring(imageStart, imageEnd);
-//            System.out.println("imageString: starts with " + imageString.subSequence(0, 5) + " ends with " + imageString.substring(imageString.length()-5) + " and has length " + imageString.length());
-            
-            // extract "data:image/jpeg;base64," content
-            int contentStart = DATA_START.length();
-            int contentEnd = imageString.indexOf(BASE64_START, contentStart);
-            if (contentEnd == -1) {
-                // something wrong with this image...
-                continue;
-            }
-            final String imageType = imageString.substring(contentStart, contentEnd);
-//            System.out.println("imageType: " + imageType);
-            // TODO: only works for png & jpeg
-            if ("gif".equals(imageType)) {
-                continue;
-            }
-            
-            contentStart = imageString.indexOf(BASE64_START) + BASE64_START.length();
-            if (contentStart == -1) {
-                // something wrong with this image...
-                continue;
+        private ChangedNoteText(final Note note, final String oldContent, final String newContent) {
+            this.note = note;
+            this.oldContent = oldContent;
+            this.newContent = newContent;
+        }
+    }
+    
+    // process the content of the notes in the background - note by note, so that only changed contents are kept
+    // for the edited note the one from the editor is used, others are read from the file if not yet loaded
+    private void processNoteTexts(
+            final List<Note> notes, 
+            final String title, 
+            final BiFunction<Integer, String, String> processor, 
+            final Runnable done) {
+        // no access to the notes from the background
+        final List<NoteSnapshot> snapshots = FileManager.getInstance().getNoteSnapshots(notes);
+        final int editedIndex = notes.indexOf(editedNote);
+        final String editedContent = (editedIndex >= 0) ? getNoteText() : null;
+
+        BackgroundTask.runWithProgress(myWebView.getScene().getWindow(), title, (progress) -> {
+            final List<ChangedNoteText> result = new ArrayList<>();
+            for (int i = 0; i < snapshots.size(); i++) {
+                final NoteSnapshot snapshot = snapshots.get(i);
+                final String content = (i == editedIndex) ? editedContent : FileManager.getInstance().getNoteContent(snapshot);
+                final String newContent = processor.apply(i, content);
+                if (newContent != content) {
+                    result.add(new ChangedNoteText(snapshot.getNote(), content, newContent));
+                }
+                progress.accept(i + 1, snapshots.size());
             }
-            if (imageString.indexOf("\"", contentStart) > 0) {
-                contentEnd = imageString.indexOf("\"", contentStart);
+            return result;
+        }, (changedNotes) -> {
+            setNoteTexts(changedNotes);
+            done.run();
+        });
+    }
+    
+    // set back changed content of the notes - the edited note via the editor, others are saved
+    // subscribers get the changes of all notes, so that e.g. task positions can be updated
+    private void setNoteTexts(final List<ChangedNoteText> changedNotes) {
+        final List<Note> saveNotes = new ArrayList<>();
+        for (ChangedNoteText changed : changedNotes) {
+            final Note note = changed.note;
+            if (note.equals(editedNote)) {
+                // the currently edited note - same as for compressImages()
+                contentChanged(changed.newContent);
+                editNote(editedNote, changed.newContent, true);
             } else {
-                contentEnd = imageString.indexOf("'", contentStart);
-            }
-            if (contentEnd == -1) {
-                // something wrong with this image...
-                continue;
-            }
-            final String imageBase64 = imageString.substring(contentStart, contentEnd);
-//            System.out.println("imageBase64: starts with " + imageBase64.subSequence(0, 5) + " ends with " + imageBase64.substring(imageBase64.length()-5) + " and has length " + imageBase64.length());
-
-            // extract width="xyz" height="abc" content if available
-            Integer imageWidth = -1;
-            contentStart = imageString.indexOf("width=\"");
-            if (contentStart == -1) {
-                contentStart = imageString.indexOf("width='");
-            }
-            if (contentStart > -1) {
-                contentStart += "width='".length();
-                contentEnd = imageString.indexOf("\"", contentStart);
-                if (contentEnd == -1) {
-                    contentEnd = imageString.indexOf("'", contentStart);
-                }
-                if (contentEnd == -1) {
-                    // something wrong with this image...
-                    continue;
+                for (IFileContentChangeSubscriber subscriber : changeSubscribers) {
+                    if (!subscriber.processFileContentChange(FileContentChangeType.CONTENT_CHANGED, note, changed.oldContent, changed.newContent)) {
+                        break;
+                    }
                 }
-                imageWidth = Integer.valueOf(imageString.substring(contentStart, contentEnd));
-            }
-//            System.out.println("imageWidth: " + imageWidth);
 
-            Integer imageHeight = -1;
-            contentStart = imageString.indexOf("height=\"");
-            if (contentStart == -1) {
-                contentStart = imageString.indexOf("height='");
-            }
-            if (contentStart > -1) {
-                contentStart += "height='".length();
-                contentEnd = imageString.indexOf("\"", contentStart);
-                if (contentEnd == -1) {
-                    contentEnd = imageString.indexOf("'", contentStart);
-                }
-                if (contentEnd == -1) {
-                    // something wrong with this image...
-                    continue;
+                // set back content - also to editor content for next editing of note
+                note.setNoteFileContent(changed.newContent);
+                if (note.getNoteEditorContent() != null) {
+                    note.setNoteEditorContent(changed.newContent);
                 }
-                imageHeight = Integer.valueOf(imageString.substring(contentStart, contentEnd));
+                saveNotes.add(note);
             }
-//            System.out.println("imageHeight: " + imageWidth);
-
-            // 3) compress image based on type images
-            final String newImageBas64 = ImageHelper.compressBase64Image(imageBase64, imageType, imageWidth, imageHeight);
+        }
 
-            // 4) replace imageString
-            String newImageString = DATA_START + imageType + BASE64_START + newImageBas64 + "\"";
-            if (imageWidth > -1) {
-                newImageString += (" width=\"" + imageWidth + "\"");
-            }
-            if (imageHeight > -1) {
-                newImageString += (" height=\"" + imageHeight + "\"");
+        FileManager.getInstance().saveNotes(saveNotes, true);
+    }
+    
+    // TFE, 20261017: move inline images of all notes to the attachments directory - in the background
+    public void externalizeAllImages() {
+        final List<Note> notes = new ArrayList<>(FileManager.getInstance().getNotesList());
+        // no access to the notes from the background
+        final List<String> noteNames = notes.stream().map((t) -> {
+            return t.getNoteName();
+        }).collect(Collectors.toList());
+        final List<String> failedNotes = new ArrayList<>();
+        
+        processNoteTexts(notes, MOVE_IMAGES.get(getLanguage()), (index, content) -> {
+            final List<Exception> errors = new ArrayList<>();
+            final String result = ImageAttachments.getInstance().externalizeImages(content, errors);
+            if (!errors.isEmpty()) {
+                failedNotes.add(noteNames.get(index) + ": " + errors.get(0).getMessage());
             }
-            
-            if (newImageString.length() < imageString.length()) {
-                content = content.replace(imageString, newImageString);
-                System.out.println("Replaced " + imageString.length() + " chars of image data with " + newImageString.length() + " chars for image starting @" + imageStart);
+            return result;
+        }, () -> {
+            if (!failedNotes.isEmpty()) {
+                myEditor.showAlert(
+                        Alert.AlertType.WARNING, 
+                        "Warning", 
+                        "Not all images could be moved - they are kept in the notes.", 
+                        String.join(System.lineSeparator(), failedNotes), 
+                        new ButtonType("OK", ButtonBar.ButtonData.RIGHT));
             }
+        });
+    }
+    
+    // TFE, 20261017: move inline images of the note to the attachments directory
+    public void externalizeImages() {
+        if (editedNote == null) {
+            return;
+        }
+        
+        final String oldContent = getNoteText();
+        final String content = ImageAttachments.getInstance().externalizeImages(oldContent);
+        if (content == oldContent) {
+            // nothing to be done here
+            return;
         }
         
         contentChanged(content);
@@ -819,6 +877,12 @@ public class HTMLEditor {
                                 compressImages();
                             });
 
+                            // compress images of all notes in group
+                            final MenuItem compressGroupImagesMenu = new MenuItem(COMPRESS_GROUP_IMAGES.get(getLanguage()));
+                            compressGroupImagesMenu.setOnAction((ActionEvent event) -> {
+                                compressGroupImages();
+                            });
+
                             // extract images
                             final MenuItem extractImagesMenu = new MenuItem(EXTRACT_IMAGES.get(getLanguage()));
                             extractImagesMenu.setOnAction((ActionEvent event) -> {
@@ -828,6 +892,7 @@ public class HTMLEditor {
                             // add new items:
                             itemsContainer.getChildren().add(cmc.new MenuItemContainer(saveMenu));
                             itemsContainer.getChildren().add(cmc.new MenuItemContainer(compressImagesMenu));
+                            itemsContainer.getChildren().add(cmc.new MenuItemContainer(compressGroupImagesMenu));
                             itemsContainer.getChildren().add(cmc.new MenuItemContainer(extractImagesMenu));
                             itemsContainer.getChildren().add(cmc.new MenuItemContainer(replaceCheckedBoxesMenu));
                             itemsContainer.getChildren().add(cmc.new MenuItemContainer(replaceCheckmarksMenu));
@@ -1023,14 +1088,22 @@ public class HTMLEditor {
     }
         
     public void editNote(final Note note) {
-        editNote(note, note != null ? note.getNoteFileContent() : "", false);
+        // TFE, 20261017: notes directory might have been moved since images have been stored
+        editNote(note, note != null ? ImageAttachments.getInstance().updateImagePaths(note.getNoteFileContent()) : "", false);
     }
         
     private void editNote(final Note note, final String text, final boolean keepCursorPos) {
+        // TFE, 20261017: subscribers need to be done with the previous content
+        changeDispatcher.flush();
+
         setContentDone = false;
         Runnable task = () -> {
             //System.out.println("setEditorText " + text);
-            wrapExecuteScript(myWebEngine, "saveSetContent('" + replaceForEditor(text) + "', " + keepCursorPos + ");");
+            // TFE, 20261017: editor fetches the content via getContentToSet()
+            // no escaping & no parsing of a javascript string with the whole note in it
+            contentToSet = text;
+            wrapExecuteScript(myWebEngine, "setContentFromCallback(" + keepCursorPos + ");");
+            contentToSet = null;
         };
         
         startTask(task);
@@ -1040,6 +1113,11 @@ public class HTMLEditor {
         }
     }
 
+    // TFE, 20261017: callback for the editor during editNote() - the string is handed over as is
+    public String getContentToSet() {
+        return (contentToSet != null) ? contentToSet : "";
+    }
+
     private String replaceForEditor(final String text) {
         String result = text;
 
@@ -1071,6 +1149,19 @@ public class HTMLEditor {
     }
 
     private String readNoteText() {
+        final String newEditorText = fetchNoteText();
+        // TFE, 20261017: whoever reads the text expects tasks & links to match
+        changeDispatcher.flush();
+
+        if (editorInitialized && editedNote != null) {
+            editedNote.setNoteEditorContent(newEditorText);
+        }
+
+        return newEditorText;
+    }
+
+    // TFE, 20261017: full content from the editor - also the base for all following content deltas
+    private String fetchNoteText() {
         String newEditorText = "";
 
         if (editorInitialized) {
@@ -1080,10 +1171,6 @@ public class HTMLEditor {
             newEditorText = (String) dummy;
 
             //System.out.println("readEditorText " + newEditorText);
-            
-            if (editedNote != null) {
-                editedNote.setNoteEditorContent(newEditorText);
-            }
         }
 
         return newEditorText;
@@ -1265,15 +1352,22 @@ public class HTMLEditor {
                 // TFE, 20201012: allow pasting of images
                 // issues with images from javafx clipboard: https://bugs.openjdk.java.net/browse/JDK-8223425
                 final BufferedImage img = (BufferedImage) myClipboardAwt.getData(DataFlavor.imageFlavor); 
-                final String base64String;
+                final byte[] imageData;
                 try (ByteArrayOutputStream baos = new ByteArrayOutputStream(1000)) {
                     ImageIO.write(img, "png", baos);
                     baos.flush();
-                    base64String = java.util.Base64.getEncoder().encodeToString(baos.toByteArray());
+                    imageData = baos.toByteArray();
                 }  
             
-                // duplication of code with javascript method insertMedia - but we can live with that
-                result = "<img src='data:" + "image/png" + ";base64," + base64String + "' >";
+                if (EditorPreferences.EXTERNALIZE_IMAGES.getAsType()) {
+                    // TFE, 20261017: store image in the attachments directory and only reference it
+                    // duplication of code with javascript method insertImageFile - but we can live with that
+                    final String fileName = ImageAttachments.getInstance().storeImage(imageData, "image/png");
+                    result = "<img src='" + ImageAttachments.getInstance().getImageUrl(fileName) + "' loading='lazy' >";
+                } else {
+                    // duplication of code with javascript method insertMedia - but we can live with that
+                    result = "<img src='data:" + "image/png" + ";base64," + java.util.Base64.getEncoder().encodeToString(imageData) + "' >";
+                }
             }
         } catch (UnsupportedFlavorException | IOException ex) {
             Logger.getLogger(getClass().getName()).log(Level.SEVERE, null, ex);
@@ -1283,6 +1377,9 @@ public class HTMLEditor {
     }
     
     public void checkBoxChanged(final String htmlBefore, final String htmlAfter) {
+        // TFE, 20261017: keep the order of changes
+        changeDispatcher.flush();
+
         // send change note to all subscribes
         for (IFileContentChangeSubscriber subscriber : changeSubscribers) {
             if (!subscriber.processFileContentChange(FileContentChangeType.CHECKBOX_CHANGED, editedNote, htmlBefore, htmlAfter)) {
@@ -1303,14 +1400,36 @@ public class HTMLEditor {
             return;
         }
 
-        editedNote.setNoteEditorContent(newContent);
-
-        // send change note to all subscribes
-        for (IFileContentChangeSubscriber subscriber : changeSubscribers) {
-            if (!subscriber.processFileContentChange(FileContentChangeType.CONTENT_CHANGED, editedNote, oldContent, newContent)) {
-                break;
-            }
+        fireContentChange(ContentChange.of(oldContent, newContent));
+    }
+    
+    // TFE, 20261017: editor only sends the range that has changed since the last content we got
+    // oldLength is what the editor thinks our content is - if that doesn't match we're out of sync and need the full content
+    public void contentDelta(final int start, final int oldEnd, final int oldLength, final String inserted) {
+        if (editedNote == null) {
+            return;
+        }
+        
+        final String oldContent = editedNote.getNoteEditorContent();
+        if (oldContent == null || oldContent.length() != oldLength || start < 0 || start > oldEnd || oldEnd > oldLength) {
+            Logger.getLogger(HTMLEditor.class.getName()).log(Level.WARNING, "Content delta doesn't match content of note, reading full content.");
+            contentChanged(fetchNoteText());
+            return;
+        }
+        
+        final ContentChange change = new ContentChange(oldContent, start, oldEnd, inserted);
+        if (change.isEmpty()) {
+            return;
         }
+
+        fireContentChange(change);
+    }
+    
+    private void fireContentChange(final ContentChange change) {
+        editedNote.setNoteEditorContent(change.getNewContent());
+
+        // send change note to all subscribes - once the user pauses typing
+        changeDispatcher.submit(editedNote, change);
     }
     
     public void toggleDialog(final boolean isOpen) {
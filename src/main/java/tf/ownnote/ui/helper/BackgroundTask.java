@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.concurrent.Task;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import javafx.stage.Window;
+import tf.helper.javafx.ShowAlerts;
+
+/**
+ * Run longer work on a background thread and show its progress in a modal dialog.
+ * 
+ * @author thomas
+ */
+public class BackgroundTask {
+    private BackgroundTask() {
+        super();
+    }
+    
+    /**
+     * Run work on a background thread and show its progress in a modal dialog.
+     * 
+     * If the work fails the user gets an alert with the error.
+     * 
+     * @param <T> result type of the work
+     * @param owner window to block while the work is running
+     * @param title title of the dialog
+     * @param work the work - gets a callback for the progress (done, total)
+     * @param done what to do with the result - called on the FX thread
+     */
+    public static <T> void runWithProgress(final Window owner, final String title, final Function<BiConsumer<Integer, Integer>, T> work, final Consumer<T> done) {
+        final Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.apply((count, total) -> {
+                    updateProgress(count, total);
+                });
+            }
+        };
+
+        final ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+        final VBox progressBox = new VBox(10, new Label(title), progressBar);
+        progressBox.setPadding(new Insets(10));
+
+        final Stage progressStage = new Stage(StageStyle.UTILITY);
+        progressStage.initOwner(owner);
+        progressStage.initModality(Modality.WINDOW_MODAL);
+        progressStage.setTitle(title);
+        progressStage.setScene(new Scene(progressBox));
+        // no way to cancel this
+        progressStage.setOnCloseRequest((t) -> {
+            t.consume();
+        });
+
+        task.setOnSucceeded((t) -> {
+            progressStage.close();
+            done.accept(task.getValue());
+        });
+        task.setOnFailed((t) -> {
+            progressStage.close();
+            Logger.getLogger(BackgroundTask.class.getName()).log(Level.SEVERE, null, task.getException());
+
+            final ButtonType buttonOK = new ButtonType("OK", ButtonBar.ButtonData.RIGHT);
+            Optional<ButtonType> doAction = 
+                    ShowAlerts.getInstance().showAlert(
+                            Alert.AlertType.ERROR,
+                            "Error",
+                            title + " failed.",
+                            String.valueOf(task.getException()),
+                            buttonOK);
+        });
+        
+        progressStage.show();
+        final Thread thread = new Thread(task, title);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
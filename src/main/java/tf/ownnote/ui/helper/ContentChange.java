@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+/**
+ * Description of a single change of note content: the range [start, oldEnd) of the old content
+ * has been replaced by the inserted text.
+ * 
+ * The editor only sends the changed range - the new content is built from the old one on first request.
+ * Subscribers that only care about the changed part can use the range without comparing old & new content.
+ * 
+ * @author thomas
+ */
+public class ContentChange {
+    private final String oldContent;
+    private final int start;
+    private final int oldEnd;
+    private final String inserted;
+    
+    private String newContent;
+    
+    public ContentChange(final String old, final int startPos, final int oldEndPos, final String insertedText) {
+        if (startPos < 0 || oldEndPos < startPos || oldEndPos > old.length()) {
+            throw new IllegalArgumentException("Invalid range [" + startPos + ", " + oldEndPos + ") for content of length " + old.length());
+        }
+        
+        oldContent = old;
+        start = startPos;
+        oldEnd = oldEndPos;
+        inserted = insertedText;
+    }
+    
+    /**
+     * Change between two full contents: everything before is common prefix, everything after common suffix.
+     * 
+     * @param old content before the change
+     * @param current content after the change
+     * @return the change descriptor
+     */
+    public static ContentChange of(final String old, final String current) {
+        final int minLength = Math.min(old.length(), current.length());
+
+        int prefix = 0;
+        while (prefix < minLength && old.charAt(prefix) == current.charAt(prefix)) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        while (suffix < minLength - prefix && 
+                old.charAt(old.length() - 1 - suffix) == current.charAt(current.length() - 1 - suffix)) {
+            suffix++;
+        }
+        
+        final ContentChange result = new ContentChange(old, prefix, old.length() - suffix, current.substring(prefix, current.length() - suffix));
+        result.newContent = current;
+        return result;
+    }
+    
+    public String getOldContent() {
+        return oldContent;
+    }
+    
+    public String getNewContent() {
+        if (newContent == null) {
+            final StringBuilder builder = new StringBuilder(oldContent.length() - (oldEnd - start) + inserted.length());
+            builder.append(oldContent, 0, start);
+            builder.append(inserted);
+            builder.append(oldContent, oldEnd, oldContent.length());
+            newContent = builder.toString();
+        }
+        return newContent;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getOldEnd() {
+        return oldEnd;
+    }
+
+    public int getNewEnd() {
+        return start + inserted.length();
+    }
+
+    public String getInserted() {
+        return inserted;
+    }
+    
+    /**
+     * Combine with a change that has been made on top of this one.
+     * 
+     * @param next change with the new content of this change as old content
+     * @return one change from the old content of this change to the new content of the next one
+     */
+    public ContentChange merge(final ContentChange next) {
+        final int mergedStart = Math.min(start, next.start);
+        // end of both changes in the content between the two changes
+        final int midEnd = Math.max(getNewEnd(), next.oldEnd);
+        final int mergedOldEnd = midEnd - (getNewEnd() - oldEnd);
+        final int mergedNewEnd = midEnd + (next.getNewEnd() - next.oldEnd);
+
+        final String mergedContent = next.getNewContent();
+        final ContentChange result = new ContentChange(oldContent, mergedStart, mergedOldEnd, mergedContent.substring(mergedStart, mergedNewEnd));
+        result.newContent = mergedContent;
+        return result;
+    }
+    
+    public boolean isEmpty() {
+        return start == oldEnd && inserted.isEmpty();
+    }
+}
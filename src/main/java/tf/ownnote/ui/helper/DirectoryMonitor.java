@@ -25,6 +25,7 @@
  */
 package tf.ownnote.ui.helper;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Path;
@@ -33,8 +34,12 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import tf.helper.general.ObjectsHelper;
@@ -49,6 +54,9 @@ public class DirectoryMonitor {
     
     // linked list to maintain order of callbacks
     private List<IFileChangeSubscriber> changeSubscribers = new LinkedList<>();
+    
+    // TFE, 20261017: changes we have done ourselves and don't want to be notified about
+    private final OwnChangeLedger ownChanges = new OwnChangeLedger();
 
     public DirectoryMonitor() {
         super();
@@ -94,6 +102,27 @@ public class DirectoryMonitor {
         }
     }
     
+    /**
+     * Register a file that we're about to change ourselves.
+     * Until changeDone() is called - but at most for a few seconds - all events for this file are ignored.
+     * 
+     * @param fileName name of the file in the monitored directory
+     */
+    public void expectChange(final String fileName) {
+        ownChanges.expectChange(fileName);
+    }
+    
+    /**
+     * Our own change of the file is done. Events are only ignored as long as
+     * the file still looks as we have left it.
+     * 
+     * @param fileName name of the file in the monitored directory
+     * @param filePath full path of the file
+     */
+    public void changeDone(final String fileName, final Path filePath) {
+        ownChanges.changeDone(fileName, filePath);
+    }
+    
     public void enableMonitor() {
         fileWatcher.enable();
     }
@@ -105,89 +134,181 @@ public class DirectoryMonitor {
     public void setDirectoryToMonitor(final String directory) {
         stop();
         
-        fileWatcher = new ThreadWatcher(directory, changeSubscribers);
+        // TFE, 20261017: events for the same file are collected for a while before calling the subscribers
+        final Integer debounceMillis = EditorPreferences.FILE_CHANGE_DEBOUNCE.getAsType();
+        ownChanges.clear();
+        fileWatcher = new ThreadWatcher(directory, changeSubscribers, ownChanges, debounceMillis);
         fileWatcher.enable();
         watchThread = new Thread(fileWatcher, "FileWatcher");
         watchThread.start();
     }
     
+    /**
+     * Wait for the first event and collect everything that happens within the debounce window after it.
+     * 
+     * @param service the service to take the events from
+     * @param debounceMillis length of the debounce window
+     * @param events events coalesced per file - in order of the first event for each file
+     * @throws InterruptedException if interrupted while waiting
+     */
+    protected static void collectEvents(
+            final WatchService service, 
+            final long debounceMillis, 
+            final Map<Path, WatchEvent.Kind<?>> events) throws InterruptedException {
+        // nothing to do until the first event comes in
+        WatchKey key = service.take();
+
+        // and now collect everything that happens within the debounce window
+        final long deadline = System.currentTimeMillis() + debounceMillis;
+        while (key != null) {
+            // we have a polled event, now we traverse it and
+            // receive all the states from it
+            for (WatchEvent<?> event : key.pollEvents()) {
+//                System.out.printf("Time %s: Received %s event for file: %s\n",
+//                        Instant.now().toString(), event.kind(), event.context() );
+
+                final WatchEvent.Kind<?> eventKind = event.kind();
+                if (eventKind == StandardWatchEventKinds.OVERFLOW) {
+                    continue;
+                }
+                addEvent(events, ObjectsHelper.uncheckedCast(event.context()), eventKind);
+            }
+            key.reset();
+
+            final long remaining = deadline - System.currentTimeMillis();
+            if (remaining > 0) {
+                key = service.poll(remaining, TimeUnit.MILLISECONDS);
+            } else {
+                // pick up whatever is there already
+                key = service.poll();
+            }
+        }
+    }
+    
+    /**
+     * Coalesce a new event for a file with the one already collected.
+     * 
+     * @param events events collected so far
+     * @param filePath file of the new event
+     * @param eventKind kind of the new event
+     */
+    protected static void addEvent(final Map<Path, WatchEvent.Kind<?>> events, final Path filePath, final WatchEvent.Kind<?> eventKind) {
+        final WatchEvent.Kind<?> pendingKind = events.get(filePath);
+        if (pendingKind == null) {
+            events.put(filePath, eventKind);
+        } else if (StandardWatchEventKinds.ENTRY_CREATE.equals(pendingKind)) {
+            if (StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind)) {
+                // came and went - e.g. temp files of sync clients
+                events.remove(filePath);
+            }
+            // create + modify is still a create
+        } else if (StandardWatchEventKinds.ENTRY_DELETE.equals(pendingKind)) {
+            if (StandardWatchEventKinds.ENTRY_CREATE.equals(eventKind)) {
+                // file has been replaced
+                events.put(filePath, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+        } else {
+            if (StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind)) {
+                // modify + delete is a delete
+                events.put(filePath, eventKind);
+            }
+            // modify + create can't happen - and modify + modify is a modify
+        }
+    }
+    
     /**
      * This Runnable is used to constantly attempt to take from the watch 
      * queue, and will receive all events that are registered with the 
-     * fileWatcher it is associated. In this sample for simplicity we 
-     * just output the kind of event and name of the file affected to 
-     * standard out.
+     * fileWatcher it is associated.
+     * 
+     * TFE, 20261017: blocks in take() instead of polling and waits while disabled.
+     * Events are collected for the debounce window after the first one and
+     * coalesced per file before the subscribers are called.
      */
     private static class ThreadWatcher implements Runnable {
  
         // callback to OwnNoteEditor required for e.g. delete & rename
         private final List<IFileChangeSubscriber> changeSubscribers;
+        private final OwnChangeLedger ownChanges;
 
         /** the watchService that is passed in from above */
-        private WatchService watcher = null;
-        private Path watchPath = null; 
+        private volatile WatchService watcher = null;
         private final String watchDir;
+        private final long debounceMillis;
         private volatile boolean running = true;
-        private volatile boolean enabled = true;
+        // guarded by this
+        private boolean enabled = false;
+        
+        // events of the current debounce window - in order of the first event for each file
+        private final Map<Path, WatchEvent.Kind<?>> pendingEvents = new LinkedHashMap<>();
 
-        public ThreadWatcher(final String directory, final List<IFileChangeSubscriber> subscribers) {
+        public ThreadWatcher(final String directory, final List<IFileChangeSubscriber> subscribers, final OwnChangeLedger ledger, final long debounce) {
             watchDir = directory;
             changeSubscribers = subscribers;
+            ownChanges = ledger;
+            debounceMillis = Math.max(0, debounce);
         }
         public void terminate() {
             running = false;
+            
+            synchronized (this) {
+                closeWatcher();
+                notifyAll();
+            }
         }
-        public void enable() {
+        public synchronized void enable() {
             // System.out.printf("Time %s: Starting to enable watcher\n", myEditor.getCurrentTimeStamp());
-            disable();
-
             // initialize path and watcher if not already set
-            if (watchPath == null || watcher == null) {
+            if (watcher == null) {
                 try {
-                    watchPath = Paths.get(watchDir);
-                    
-                    if (watcher != null) {
-                        watcher.close();
-                    }
-                    watcher = watchPath.getFileSystem().newWatchService();
+                    final Path watchPath = Paths.get(watchDir);
+                    final WatchService newWatcher = watchPath.getFileSystem().newWatchService();
 
                     // register a file
-                    watchPath.register(watcher,
+                    watchPath.register(newWatcher,
                             StandardWatchEventKinds.ENTRY_CREATE,
                             StandardWatchEventKinds.ENTRY_DELETE,
                             StandardWatchEventKinds.ENTRY_MODIFY);
-
+                    
+                    watcher = newWatcher;
                 } catch (IOException ex) {
                     Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
                 }
             }
 
             enabled = true;
+            // wake up the watcher thread
+            notifyAll();
             // System.out.printf("Time %s: Enabled watcher\n", myEditor.getCurrentTimeStamp());
         }
-        public void disable() {
+        public synchronized void disable() {
             // System.out.printf("Time %s: Starting to disable watcher\n", myEditor.getCurrentTimeStamp());
             enabled = false;
             
-            // close watcher and unset path and watcher
-            if (watchPath != null && watcher != null) {
+            // close watcher - this also releases the watcher thread from take()
+            closeWatcher();
+            // System.out.printf("Time %s: Disabled watcher\n", myEditor.getCurrentTimeStamp());
+        }
+        
+        private void closeWatcher() {
+            if (watcher != null) {
                 try {
-                    // give some time to think about that :-)
-                    Thread.sleep(10);
-
                     watcher.close();
-
-                    watcher = null;
-                    watchPath = null;
-                } catch (IOException | InterruptedException ex) {
+                } catch (IOException ex) {
                     Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
                 }
-
-                // System.out.printf("Time %s: Disabled watcher\n", myEditor.getCurrentTimeStamp());
-
-                // System.out.printf("Time %s: Disabled watcher\n", myEditor.getCurrentTimeStamp());
+                watcher = null;
             }
         }
+        
+        // park until we're enabled again - returns null if we should stop
+        private synchronized WatchService awaitEnabled() throws InterruptedException {
+            while (running && (!enabled || watcher == null)) {
+                wait();
+            }
+            
+            return running ? watcher : null;
+        }
  
         /**
          * In order to implement a file watcher, we loop forever 
@@ -196,53 +317,137 @@ public class DirectoryMonitor {
          */
         @Override
         public void run() {
-            WatchKey key = null;
             while(running) {
-                if (enabled) {
-                    // fix for CPU-load issue - do nothing for a while
-                    try {
-                        Thread.sleep(250);
-                    } catch (InterruptedException ex) {
-                        Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
-                    }
-                    
-                    try {
-                        // due to wait loop above the watcher might have been deleted due to notes directory change
-                        if (watcher != null) {
-                            key = watcher.poll();
-                        }
-                    } catch (ClosedWatchServiceException ex) {
-                        // System.out.printf("Time %s: Exception\n", myEditor.getCurrentTimeStamp());
-                        Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
-                        key = null;
-                    }
-                    
-                    if (key != null) {
-                        // we have a polled event, now we traverse it and
-                        // receive all the states from it
-                        for (WatchEvent<?> event : key.pollEvents()) {
-//                            System.out.printf("Time %s: Received %s event for file: %s\n",
-//                                    Instant.now().toString(), event.kind(), event.context() );
-
-                            final WatchEvent.Kind<?> eventKind = event.kind();
-                            if (eventKind == StandardWatchEventKinds.OVERFLOW) {
-                                continue;
-                            }
-                            final Path filePath = ObjectsHelper.uncheckedCast(event.context());
-
-                            // calling all subscribers...
-                            for (IFileChangeSubscriber subscriber : changeSubscribers) {
-                                if (!subscriber.processFileChange(eventKind, filePath)) {
-                                    break;
-                                }
-                            }
-//                            System.out.printf("Time %s: Processed %s event for file: %s\n",
-//                                    Instant.now().toString(), event.kind(), event.context() );
-                        }
-                        key.reset();
+                final WatchService service;
+                try {
+                    service = awaitEnabled();
+                } catch (InterruptedException ex) {
+                    Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
+                    break;
+                }
+                if (service == null) {
+                    break;
+                }
+
+                try {
+                    collectEvents(service, debounceMillis, pendingEvents);
+                } catch (ClosedWatchServiceException ex) {
+                    // disabled or terminated - nothing to worry about
+                } catch (InterruptedException ex) {
+                    Logger.getLogger(DirectoryMonitor.class.getName()).log(Level.SEVERE, null, ex);
+                    running = false;
+                }
+                
+                // events we have seen are real - so pass them on even if we have been disabled in the meantime
+                dispatchEvents();
+            }
+        }
+        
+        private void dispatchEvents() {
+            ownChanges.pruneExpired();
+            
+            for (Map.Entry<Path, WatchEvent.Kind<?>> event : pendingEvents.entrySet()) {
+                if (ownChanges.isOwnChange(event.getKey().toString(), Paths.get(watchDir).resolve(event.getKey()))) {
+                    // we did that ourselves - nothing to tell anyone
+                    continue;
+                }
+
+                // calling all subscribers...
+                for (IFileChangeSubscriber subscriber : changeSubscribers) {
+                    if (!subscriber.processFileChange(event.getValue(), event.getKey())) {
+                        break;
                     }
                 }
+//                System.out.printf("Time %s: Processed %s event for file: %s\n",
+//                        Instant.now().toString(), event.getValue(), event.getKey() );
+            }
+            pendingEvents.clear();
+        }
+    }
+    
+    /**
+     * Ledger of the changes we do to files ourselves.
+     * 
+     * Instead of closing the WatchService around every save / rename / ... we keep
+     * track of the files that we change and how they look afterwards (size & last modified).
+     * Events are only dropped if the file still matches - changes from others get through.
+     */
+    private static class OwnChangeLedger {
+        // how long after our change do we expect the events to come in
+        private final static long EXPIRY_MILLIS = 10000;
+        
+        private final Map<String, OwnChange> changes = new ConcurrentHashMap<>();
+        
+        private static class OwnChange {
+            private final boolean inProgress;
+            private final boolean exists;
+            private final long size;
+            private final long modified;
+            private final long expires;
+
+            private OwnChange(final boolean inProgress, final boolean exists, final long size, final long modified) {
+                this.inProgress = inProgress;
+                this.exists = exists;
+                this.size = size;
+                this.modified = modified;
+                expires = System.currentTimeMillis() + EXPIRY_MILLIS;
+            }
+        }
+        
+        public void clear() {
+            changes.clear();
+        }
+
+        public void expectChange(final String fileName) {
+            changes.put(fileName, new OwnChange(true, false, -1, -1));
+        }
+        
+        public void changeDone(final String fileName, final Path filePath) {
+            final File file = filePath.toFile();
+            if (file.exists()) {
+                changes.put(fileName, new OwnChange(false, true, file.length(), file.lastModified()));
+            } else {
+                changes.put(fileName, new OwnChange(false, false, -1, -1));
             }
+            
+            pruneExpired();
+        }
+        
+        // changes whose events never came in - or that never have been finished
+        public void pruneExpired() {
+            final long now = System.currentTimeMillis();
+            changes.values().removeIf((t) -> {
+                return now > t.expires;
+            });
+        }
+        
+        public boolean isOwnChange(final String fileName, final Path filePath) {
+            final OwnChange change = changes.get(fileName);
+            if (change == null) {
+                return false;
+            }
+
+            if (System.currentTimeMillis() > change.expires) {
+                // also for changes in progress - someone might have forgotten to tell us that they're done
+                changes.remove(fileName, change);
+                return false;
+            }
+            if (change.inProgress) {
+                // we're still working on it - events after we're done still need to be matched
+                return true;
+            }
+
+            final File file = filePath.toFile();
+            final boolean result;
+            if (file.exists()) {
+                result = change.exists && change.size == file.length() && change.modified == file.lastModified();
+            } else {
+                result = !change.exists;
+            }
+            
+            // one change - one event: anything afterwards is news
+            changes.remove(fileName, change);
+            return result;
         }
     }
 }
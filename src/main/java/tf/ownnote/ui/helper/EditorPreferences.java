@@ -44,7 +44,15 @@ public enum EditorPreferences implements IPreferencesStore {
     // TFE, 20210716: store recent note per group
     RECENT_NOTE_FOR_GROUP("recentNoteForGroup", "", String.class),
     // TFE, 20230423: show / hide notes from sub groups
-    SHOW_NOTES_FROM_SUB_GROUPS("showNotesFromSubGroups", Boolean.toString(true), Boolean.class);
+    SHOW_NOTES_FROM_SUB_GROUPS("showNotesFromSubGroups", Boolean.toString(true), Boolean.class),
+    // TFE, 20261017: read note files in parallel on startup
+    PARALLEL_NOTES_SCAN("parallelNotesScan", Boolean.toString(true), Boolean.class),
+    // TFE, 20261017: time window in ms to collect file system events before processing them
+    FILE_CHANGE_DEBOUNCE("fileChangeDebounce", Integer.toString(250), Integer.class),
+    // TFE, 20261017: time window in ms to collect editor changes before telling the subscribers
+    CONTENT_CHANGE_DEBOUNCE("contentChangeDebounce", Integer.toString(500), Integer.class),
+    // TFE, 20261017: store images as files in the attachments directory instead of inline in the note
+    EXTERNALIZE_IMAGES("externalizeImages", Boolean.toString(false), Boolean.class);
     
     public static final String PREF_STRING_PREFIX = "[ ";
     public static final String PREF_STRING_SUFFIX = " ]";
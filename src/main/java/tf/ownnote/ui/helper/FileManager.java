@@ -33,6 +33,7 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
@@ -40,20 +41,34 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.scene.control.Alert;
@@ -63,6 +78,7 @@ import org.apache.commons.io.FileUtils;
 import tf.ownnote.ui.main.OwnNoteEditor;
 import tf.ownnote.ui.notes.INoteCRMDS;
 import tf.ownnote.ui.notes.Note;
+import tf.ownnote.ui.notes.NoteMetaData;
 import tf.ownnote.ui.notes.NoteVersion;
 import tf.ownnote.ui.tags.TagData;
 import tf.ownnote.ui.tags.TagManager;
@@ -84,6 +100,9 @@ public class FileManager implements INoteCRMDS {
     
     // TFE: 20210125: and now with backup, too!
     private final static String BACKUP_DIR = File.separator + "Backup";
+    
+    // TFE, 20261017: limit number of files opened in parallel during scan of notes path
+    private final static int MAX_PARALLEL_READS = 64;
 
     // callback to OwnNoteEditor required for e.g. delete & rename
     private OwnNoteEditor myEditor;
@@ -95,10 +114,30 @@ public class FileManager implements INoteCRMDS {
     
     private final Map<String, Note> notesList = new LinkedHashMap<>();
     
+    // TFE, 20261017: decoded metadata of all notes - so we don't need to open all files on every start
+    private final NoteHeaderIndex noteHeaderIndex = new NoteHeaderIndex();
+    
+    // TFE, 20261017: words of all notes - so search in files doesn't need to read all files on every keystroke
+    private final NoteTextIndex noteTextIndex = new NoteTextIndex();
+    
     private FileManager() {
         super();
 
         myEditor = null;
+        
+        // TFE, 20261017: keep text index up to date for external changes
+        // create & delete are handled via addNoteFile() & removeNoteFile()
+        myDirMonitor.subscribe((eventKind, filePath) -> {
+            if (StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
+                Platform.runLater(() -> {
+                    final Note note = getNote(filePath.getFileName().toString());
+                    if (note != null) {
+                        noteTextIndex.updateNote(note, readNoteFile(Paths.get(notesPath, buildNoteName(note)), note.getMetaData().getCharset()));
+                    }
+                });
+            }
+            return true;
+        });
     }
 
     public static FileManager getInstance() {
@@ -126,6 +165,17 @@ public class FileManager implements INoteCRMDS {
         myDirMonitor.stop();
     }
     
+    public void saveNoteHeaderIndex() {
+        noteHeaderIndex.save(notesPath);
+    }
+    
+    // TFE, 20261017: size & last modified of the note file as we have last seen it - null if we haven't
+    public NoteHeaderIndex.Entry getNoteFileInfo(final Note note) {
+        assert note != null;
+        
+        return noteHeaderIndex.get(buildNoteName(note));
+    }
+    
     public void initNotesPath(final String newPath) {
         assert newPath != null;
         
@@ -133,55 +183,233 @@ public class FileManager implements INoteCRMDS {
         
         // scan directory for files and build groups & notes maps
         notesList.clear();
+        noteHeaderIndex.load(notesPath);
+        NoteTextExtractor.getInstance().clear();
 
         // iterate over all files from directory
+        // TFE, 20261017: collect first - the order of the directory stream is the order of the notes list
+        final List<Path> notePaths = new ArrayList<>();
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(this.notesPath), ALL_NOTES);) {
             for (Path path: stream) {
-                final File file = path.toFile();
-                final String filename = file.getName();
-                
-                String noteName;
-                String groupName;
-                // split filename to notes & group names
-                if (filename.startsWith("[")) {
-                    groupName = filename.substring(1, filename.indexOf("]"));
-                    // see pull request #44
-                    noteName = filename.substring(filename.indexOf("]")+2, filename.lastIndexOf("."));
-                } else {
-                    groupName = TagManager.ReservedTag.NotGrouped.getTagName();
-                    // see pull request #44
-                    noteName = filename.substring(0, filename.lastIndexOf("."));
-                }
-
-                // extract info from file and fill maps accordingly
-                final LocalDateTime filetime = LocalDateTime.ofInstant((new Date(file.lastModified())).toInstant(), ZoneId.systemDefault());
-
-//                System.out.println("Creating note '" + noteName + "' in group '"+ groupName + "'");
-                // TFE, 20220414: we use group tags instead of group names
-                final Note note = new Note(TagManager.getInstance().groupForExternalName(groupName, true), noteName);
-                note.setNoteModified(filetime);
-                // TFE; 20201023: set note metadata from file content
-                note.setMetaDataFromHtmlComment(getFirstLine(file));
-                // use filename and not notename since duplicate note names can exist in different groups
-                notesList.put(filename, note);
-//                System.out.println("Added note '" + note.getNoteName() + "' for group '" + note.getGroup().getExternalName() + "' from filename '" + filename + "'");
-
-                // backlink note to group
-                note.getGroup().getLinkedNotes().add(note);
+                notePaths.add(path);
             }
         } catch (IOException | DirectoryIteratorException ex) {
             Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
         }
+        
+        // TFE, 20261017: reading the first line & decoding the metadata is where the time goes for large directories
+        // so we can do that in parallel - everything that creates tags & notes is done sequentially afterwards
+        final List<NoteFileHeader> headers;
+        if (EditorPreferences.PARALLEL_NOTES_SCAN.getAsType()) {
+            headers = scanNoteFilesParallel(notePaths);
+        } else {
+            headers = new ArrayList<>();
+            for (Path path: notePaths) {
+                headers.add(scanNoteFile(path));
+            }
+        }
+
+        final List<NoteHeaderIndex.Entry> indexEntries = new ArrayList<>();
+        final Map<TagData, List<Note>> groupNotes = new LinkedHashMap<>();
+        for (NoteFileHeader header : headers) {
+            final Note note = noteFromHeader(header);
+            // use filename and not notename since duplicate note names can exist in different groups
+            notesList.put(header.fileName, note);
+            indexEntries.add(new NoteHeaderIndex.Entry(header.fileName, header.fileSize, header.fileModified, header.metaData));
+
+            groupNotes.computeIfAbsent(note.getGroup(), k -> new ArrayList<>()).add(note);
+        }
+
+        // only keep entries for existing files
+        noteHeaderIndex.setAll(indexEntries);
+
+        // backlink notes to group - one addAll per group instead of one add per note
+        for (Map.Entry<TagData, List<Note>> entry : groupNotes.entrySet()) {
+            entry.getKey().getLinkedNotes().addAll(entry.getValue());
+        }
 
         // TFE, 20210508: don't forget to add notes to group ALL as well...
         TagManager.ReservedTag.All.getTag().getLinkedNotes().clear();
         TagManager.ReservedTag.All.getTag().getLinkedNotes().addAll(notesList.values());
+        
+        // TFE, 20261017: build text index in the background - searches off the FX thread wait for it if required
+        final Map<Note, Path> notePathMap = new IdentityHashMap<>();
+        for (Map.Entry<String, Note> entry : notesList.entrySet()) {
+            notePathMap.put(entry.getValue(), Paths.get(notesPath, entry.getKey()));
+        }
+        noteTextIndex.rebuild(notePathMap.keySet(), (note) -> {
+            return readNoteFile(notePathMap.get(note), note.getMetaData().getCharset());
+        });
 
         // fix #14
         // monitor directory for changes
         myDirMonitor.setDirectoryToMonitor(notesPath);
     }
     
+    private Note noteFromHeader(final NoteFileHeader header) {
+//        System.out.println("Creating note '" + header.noteName + "' in group '"+ header.groupName + "'");
+        // TFE, 20220414: we use group tags instead of group names
+        final Note note = new Note(TagManager.getInstance().groupForExternalName(header.groupName, true), header.noteName);
+        note.setNoteModified(header.fileTime);
+        // TFE; 20201023: set note metadata from file content
+        note.setMetaDataFromDecodedHtmlComment(header.metaData);
+//        System.out.println("Added note '" + note.getNoteName() + "' for group '" + note.getGroup().getExternalName() + "' from filename '" + header.fileName + "'");
+        
+        return note;
+    }
+    
+    // TFE, 20261017: add a single note file that has been created outside of the editor
+    // same as initNotesPath() but without re-reading all the other files
+    public Note addNoteFile(final String fileName) {
+        assert fileName != null;
+        
+        final Path path = Paths.get(notesPath, fileName);
+        // TFE, 20201027: make sure we don't try to work on temp files which have been deleted in the meantime...
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        
+        final NoteFileHeader header = scanNoteFile(path);
+        final Note note = noteFromHeader(header);
+        notesList.put(header.fileName, note);
+        noteHeaderIndex.put(new NoteHeaderIndex.Entry(header.fileName, header.fileSize, header.fileModified, header.metaData));
+
+        // backlink note to group & ALL
+        note.getGroup().getLinkedNotes().add(note);
+        TagManager.ReservedTag.All.getTag().getLinkedNotes().add(note);
+        
+        noteTextIndex.updateNote(note, readNoteFile(path, note.getMetaData().getCharset()));
+        
+        return note;
+    }
+    
+    // TFE, 20261017: remove a single note file that has been deleted outside of the editor
+    public Note removeNoteFile(final String fileName) {
+        assert fileName != null;
+        
+        if (Files.exists(Paths.get(notesPath, fileName))) {
+            // file has been re-created in the meantime, e.g. by saving the edited note again
+            return null;
+        }
+        
+        final Note note = notesList.remove(fileName);
+        noteHeaderIndex.remove(fileName);
+        
+        if (note != null) {
+            // unlink note from group, ALL and its tags
+            note.getGroup().getLinkedNotes().remove(note);
+            TagManager.ReservedTag.All.getTag().getLinkedNotes().remove(note);
+            for (TagData tag : note.getMetaData().getTags()) {
+                tag.getLinkedNotes().remove(note);
+            }
+            
+            noteTextIndex.removeNote(note);
+            NoteTextExtractor.getInstance().remove(note);
+        }
+        
+        return note;
+    }
+    
+    private List<NoteFileHeader> scanNoteFilesParallel(final List<Path> notePaths) {
+        final List<NoteFileHeader> result = new ArrayList<>();
+        
+        // don't open 40k files at once...
+        final Semaphore openFiles = new Semaphore(MAX_PARALLEL_READS);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<NoteFileHeader>> futures = new ArrayList<>();
+            for (Path path: notePaths) {
+                futures.add(executor.submit(() -> {
+                    openFiles.acquire();
+                    try {
+                        return scanNoteFile(path);
+                    } finally {
+                        openFiles.release();
+                    }
+                }));
+            }
+
+            // collect in the order of submission - and not in the order of completion
+            for (Future<NoteFileHeader> future : futures) {
+                try {
+                    result.add(future.get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    private NoteFileHeader scanNoteFile(final Path path) {
+        final File file = path.toFile();
+        final String filename = file.getName();
+
+        String noteName;
+        String groupName;
+        // split filename to notes & group names
+        if (filename.startsWith("[")) {
+            groupName = filename.substring(1, filename.indexOf("]"));
+            // see pull request #44
+            noteName = filename.substring(filename.indexOf("]")+2, filename.lastIndexOf("."));
+        } else {
+            groupName = TagManager.ReservedTag.NotGrouped.getTagName();
+            // see pull request #44
+            noteName = filename.substring(0, filename.lastIndexOf("."));
+        }
+
+        // extract info from file and fill maps accordingly
+        long fileSize = file.length();
+        long fileModified = file.lastModified();
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            fileSize = attributes.size();
+            fileModified = attributes.lastModifiedTime().toMillis();
+        } catch (IOException ex) {
+            Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        final LocalDateTime filetime = LocalDateTime.ofInstant((new Date(fileModified)).toInstant(), ZoneId.systemDefault());
+        
+        // TFE, 20261017: only read the file if it has changed since we last saw it
+        final String[] metaData;
+        final NoteHeaderIndex.Entry indexEntry = noteHeaderIndex.get(filename);
+        if (indexEntry != null && indexEntry.matches(fileSize, fileModified)) {
+            metaData = indexEntry.getHeader();
+        } else {
+            metaData = NoteMetaData.decodeHtmlComment(getFirstLine(file), noteName);
+        }
+        
+        return new NoteFileHeader(filename, groupName, noteName, fileSize, fileModified, filetime, metaData);
+    }
+    
+    // TFE, 20261017: everything we need from a note file on startup - collected in parallel
+    private static class NoteFileHeader {
+        private final String fileName;
+        private final String groupName;
+        private final String noteName;
+        private final long fileSize;
+        private final long fileModified;
+        private final LocalDateTime fileTime;
+        private final String[] metaData;
+
+        private NoteFileHeader(
+                final String fileName, 
+                final String groupName, 
+                final String noteName, 
+                final long fileSize, 
+                final long fileModified, 
+                final LocalDateTime fileTime, 
+                final String[] metaData) {
+            this.fileName = fileName;
+            this.groupName = groupName;
+            this.noteName = noteName;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+            this.fileTime = fileTime;
+            this.metaData = metaData;
+        }
+    }
+    
     private String getFirstLine(final File file) {
         String result = "";
         
@@ -245,18 +473,22 @@ public class FileManager implements INoteCRMDS {
         assert note != null;
         
         boolean result = true;
-        initFilesInProgress();
         
         final String noteFileName = buildNoteName(note);
+        initFilesInProgress(noteFileName);
         
         try {
             Files.delete(Paths.get(notesPath, noteFileName));
+            
+            noteTextIndex.removeNote(note);
+            NoteTextExtractor.getInstance().remove(note);
         } catch (IOException ex) {
             Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
             result = false;
+        } finally {
+            resetFilesInProgress(noteFileName);
         }
         
-        resetFilesInProgress();
         return result;
     }
 
@@ -321,9 +553,9 @@ public class FileManager implements INoteCRMDS {
         assert noteName != null;
         
         boolean result = true;
-        initFilesInProgress();
 
         final String newFileName = buildNoteName(group, noteName);
+        initFilesInProgress(newFileName);
         
         try {
             Path newPath = Files.createFile(Paths.get(this.notesPath, newFileName));
@@ -346,9 +578,10 @@ public class FileManager implements INoteCRMDS {
         } catch (IOException ex) {
             Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
             result = false;
+        } finally {
+            resetFilesInProgress(newFileName);
         }
 
-        resetFilesInProgress();
         return result;
     }
     
@@ -362,44 +595,7 @@ public class FileManager implements INoteCRMDS {
 
         // TFE, 20201231: only read if you really have to
         if (curNote.getNoteFileContent() == null || forceRead) {
-            final StringBuffer result = new StringBuffer("");
-
-            final Path readPath = Paths.get(notesPath, buildNoteName(curNote));
-            if (StandardCharsets.ISO_8859_1.equals(curNote.getMetaData().getCharset())) {
-                try {
-                    result.append(Files.readAllBytes(readPath));
-                } catch (IOException ex) {
-                    Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            } else {
-                try (final BufferedReader reader = 
-                    new BufferedReader(new InputStreamReader(new FileInputStream(readPath.toFile()), StandardCharsets.UTF_8))) {
-
-                    boolean firstLine = true;
-                    String str;
-                    while ((str = reader.readLine()) != null) {
-                        if (!firstLine) {
-                            // don't use System.lineseparator() to avoid messup with metadata parsing
-                            result.append("\n");
-                        }
-                        result.append(str);
-
-                        firstLine = false;
-                    }
-                } catch (IOException ex) {
-                    Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
-                }
-            }
-            
-            // TFE, 20220108: upgrade notes to full html...
-            String fullContent = result.toString();
-            if (fullContent.startsWith(MINIMAL_HTML_PREFIX)) {
-                fullContent = fullContent.replaceFirst(MINIMAL_HTML_PREFIX, "");
-            }
-            if (fullContent.endsWith(MINIMAL_HTML_SUFFIX)) {
-                assert fullContent.length() > MINIMAL_HTML_SUFFIX.length();
-                fullContent = fullContent.substring(0, fullContent.length() - MINIMAL_HTML_SUFFIX.length());
-            }
+            final String fullContent = readNoteFile(Paths.get(notesPath, buildNoteName(curNote)), curNote.getMetaData().getCharset());
 
             // TFE; 20200814: store content in Note
             curNote.setNoteFileContent(fullContent);
@@ -419,62 +615,147 @@ public class FileManager implements INoteCRMDS {
         return curNote;
     }
 
+    // TFE, 20261017: read content without storing it in the note - can also be used outside of the FX thread
+    private String readNoteFile(final Path readPath, final Charset charset) {
+        final StringBuffer result = new StringBuffer("");
+
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            try {
+                result.append(Files.readAllBytes(readPath));
+            } catch (IOException ex) {
+                Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        } else {
+            try (final BufferedReader reader = 
+                new BufferedReader(new InputStreamReader(new FileInputStream(readPath.toFile()), StandardCharsets.UTF_8))) {
+
+                boolean firstLine = true;
+                String str;
+                while ((str = reader.readLine()) != null) {
+                    if (!firstLine) {
+                        // don't use System.lineseparator() to avoid messup with metadata parsing
+                        result.append("\n");
+                    }
+                    result.append(str);
+
+                    firstLine = false;
+                }
+            } catch (IOException ex) {
+                Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        
+        // TFE, 20220108: upgrade notes to full html...
+        String fullContent = result.toString();
+        if (fullContent.startsWith(MINIMAL_HTML_PREFIX)) {
+            fullContent = fullContent.replaceFirst(MINIMAL_HTML_PREFIX, "");
+        }
+        if (fullContent.endsWith(MINIMAL_HTML_SUFFIX)) {
+            assert fullContent.length() > MINIMAL_HTML_SUFFIX.length();
+            fullContent = fullContent.substring(0, fullContent.length() - MINIMAL_HTML_SUFFIX.length());
+        }
+
+        return fullContent;
+    }
+
     @Override
     public boolean saveNote(final Note note) {
         return saveNote(note, false);
     }
-        
+
+    // TFE, 20261017: save a bunch of notes, e.g. after links have been updated - and keep going if one of them fails
+    public boolean saveNotes(final Collection<Note> notes, final boolean suppressMessages) {
+        assert notes != null;
+
+        if (notes.isEmpty()) {
+            return true;
+        }
+
+        // let the monitor know about the whole batch before the first file gets written
+        final String[] fileNames = notes.stream().map((t) -> {
+            return buildNoteName(t);
+        }).toArray(String[]::new);
+        initFilesInProgress(fileNames);
+
+        boolean result = true;
+        try {
+            for (Note note : notes) {
+                if (!saveNote(note, suppressMessages)) {
+                    result = false;
+                }
+            }
+        } finally {
+            // also for the ones we haven't reached
+            resetFilesInProgress(fileNames);
+        }
+
+        // header index is stored on shutdown - same as for single notes
+        return result;
+    }
+
     public boolean saveNote(final Note note, final boolean suppressMessages) {
         assert note != null;
         
         boolean result = true;
-        initFilesInProgress();
 
         final String newFileName = buildNoteName(note);
-        
-        // TFE, 20201230: update task ids
-        TaskManager.getInstance().replaceTaskDataInNote(note, suppressMessages);
+        initFilesInProgress(newFileName);
+        // TFE, 20261017: whatever happens, the monitor needs to know that we're done
+        final String content;
+        try {
+            // TFE, 20201230: update task ids
+            TaskManager.getInstance().replaceTaskDataInNote(note, suppressMessages);
 
-        String content = note.getNoteEditorContent();
-        if (content == null) {
-            content = note.getNoteFileContent();
-        }
-        // TFE, 20201024: store note metadata
-        note.getMetaData().addVersion(new NoteVersion(System.getProperty("user.name"), LocalDateTime.now()));
-        // TFE, 20201217: from now on you're UTF-8
-        note.getMetaData().setCharset(StandardCharsets.UTF_8);
-        // TFE, 20220505: set note version to current app version
-        note.getMetaData().setAppVersion(OwnNoteEditor.AppVersion.CURRENT.getVersionId());
-        // TFE, 20220108: upgrade notes to full html...
-        final String fullContent = 
-                MINIMAL_HTML_PREFIX + 
-                note.getMetaDataAsHtmlComment() + content +
-                MINIMAL_HTML_SUFFIX;
+            content = (note.getNoteEditorContent() != null) ? note.getNoteEditorContent() : note.getNoteFileContent();
+            // TFE, 20201024: store note metadata
+            note.getMetaData().addVersion(new NoteVersion(System.getProperty("user.name"), LocalDateTime.now()));
+            // TFE, 20201217: from now on you're UTF-8
+            note.getMetaData().setCharset(StandardCharsets.UTF_8);
+            // TFE, 20220505: set note version to current app version
+            note.getMetaData().setAppVersion(OwnNoteEditor.AppVersion.CURRENT.getVersionId());
+            final String metaDataComment = note.getMetaDataAsHtmlComment();
+            // TFE, 20220108: upgrade notes to full html...
+            final String fullContent = 
+                    MINIMAL_HTML_PREFIX + 
+                    metaDataComment + content +
+                    MINIMAL_HTML_SUFFIX;
 
-        // TFE, 20201217: make sure we write UTF-8...
+            // TFE, 20201217: make sure we write UTF-8...
 //            final Path savePath = Files.write(Paths.get(this.notesPath, newFileName), fullContent.getBytes());
-        final Path savePath = Paths.get(this.notesPath, newFileName);
-        try (FileWriter fw = new FileWriter(savePath.toFile(), StandardCharsets.UTF_8);
-             BufferedWriter writer = new BufferedWriter(fw)) {
-            writer.write(fullContent);
-        } catch (IOException ex) {
-            Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
-            result = false;
-        }
+            final Path savePath = Paths.get(this.notesPath, newFileName);
+            try (FileWriter fw = new FileWriter(savePath.toFile(), StandardCharsets.UTF_8);
+                 BufferedWriter writer = new BufferedWriter(fw)) {
+                writer.write(fullContent);
+            } catch (IOException ex) {
+                Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+                result = false;
+            }
 
-        Note dataRow = notesList.get(newFileName);
-        // TFE, 20220419: note might not yet exist in notesList!
-        if (dataRow == null) {
-            dataRow = note;
+            Note dataRow = notesList.get(newFileName);
+            // TFE, 20220419: note might not yet exist in notesList!
+            if (dataRow == null) {
+                dataRow = note;
+            }
+            // TF, 20170723: update modified date of the file
+            final LocalDateTime filetime = LocalDateTime.ofInstant((new Date(savePath.toFile().lastModified())).toInstant(), ZoneId.systemDefault());
+            // TFE; 20200814: store content in Note
+            dataRow.setNoteFileContent(content);
+            dataRow.setNoteModified(filetime);
+            notesList.put(newFileName, dataRow);
+            if (result) {
+                // TFE, 20261017: we know what we have written - no need to read it again on next start
+                final File savedFile = savePath.toFile();
+                noteHeaderIndex.put(new NoteHeaderIndex.Entry(
+                        newFileName, 
+                        savedFile.length(), 
+                        savedFile.lastModified(), 
+                        NoteMetaData.decodeHtmlComment(metaDataComment, note.getNoteName())));
+            
+                noteTextIndex.updateNote(dataRow, content);
+            }
+        } finally {
+            resetFilesInProgress(newFileName);
         }
-        // TF, 20170723: update modified date of the file
-        final LocalDateTime filetime = LocalDateTime.ofInstant((new Date(savePath.toFile().lastModified())).toInstant(), ZoneId.systemDefault());
-        // TFE; 20200814: store content in Note
-        dataRow.setNoteFileContent(content);
-        dataRow.setNoteModified(filetime);
-        notesList.put(newFileName, dataRow);
-
-        resetFilesInProgress();
 
         if (result) {
             note.setNoteFileContent(content);
@@ -506,33 +787,34 @@ public class FileManager implements INoteCRMDS {
         assert oldNoteName.equals(note.getNoteName());
         
         boolean result = true;
-        initFilesInProgress();
 
         final String oldFileName = buildNoteName(note);
         final Path oldFile = Paths.get(this.notesPath, oldFileName);
         final String newFileName = buildNoteName(note.getGroup(), newNoteName);
         final Path newFile = Paths.get(this.notesPath, newFileName);
-        
-        // TF, 20160815: check existence of the file - not something that should be done by catching the exception...
-        // TFE, 20191211: handle the case of only changing upper/lower chars in the file name...
-        // tricky under windows, e.g.: https://stackoverflow.com/a/34730781, so handle separately
-        final boolean caseSensitiveRename = oldFileName.toLowerCase().equals(newFileName.toLowerCase());
-        if (!caseSensitiveRename && Files.exists(newFile)) {
-            result = false;
-        } else {
-            try {
-                Files.move(oldFile, newFile, StandardCopyOption.ATOMIC_MOVE);
-
-                final Note dataRow = notesList.remove(oldFileName);
-                dataRow.setNoteName(newNoteName);
-                notesList.put(newFileName, dataRow);
-            } catch (IOException ex) {
-                Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+        initFilesInProgress(oldFileName, newFileName);
+        try {
+            // TF, 20160815: check existence of the file - not something that should be done by catching the exception...
+            // TFE, 20191211: handle the case of only changing upper/lower chars in the file name...
+            // tricky under windows, e.g.: https://stackoverflow.com/a/34730781, so handle separately
+            final boolean caseSensitiveRename = oldFileName.toLowerCase().equals(newFileName.toLowerCase());
+            if (!caseSensitiveRename && Files.exists(newFile)) {
                 result = false;
+            } else {
+                try {
+                    Files.move(oldFile, newFile, StandardCopyOption.ATOMIC_MOVE);
+
+                    final Note dataRow = notesList.remove(oldFileName);
+                    dataRow.setNoteName(newNoteName);
+                    notesList.put(newFileName, dataRow);
+                } catch (IOException ex) {
+                    Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+                    result = false;
+                }
             }
+        } finally {
+            resetFilesInProgress(oldFileName, newFileName);
         }
-
-        resetFilesInProgress();
         return result;
     }
     
@@ -542,37 +824,38 @@ public class FileManager implements INoteCRMDS {
         assert newGroup != null;
         
         boolean result = true;
-        initFilesInProgress();
 
         final String oldFileName = buildNoteName(note);
         final Path oldFile = Paths.get(this.notesPath, oldFileName);
         final String newFileName = buildNoteName(newGroup, note.getNoteName());
         final Path newFile = Paths.get(this.notesPath, newFileName);
-        
-        // TF, 20160815: check existence of the file - not something that should be done by catching the exception...
-        // TFE, 20191211: here we don't want to be as case insensitive as  the OS is
-        if (Files.exists(newFile)) {
-            result = false;
-        } else {
-            try {
-                // System.out.printf("Time %s: Added files\n", getCurrentTimeStamp());
-                Files.move(oldFile, newFile, StandardCopyOption.ATOMIC_MOVE);
-
-                final Note dataRow = notesList.remove(oldFileName);
-                dataRow.setGroup(newGroup);
-                notesList.put(newFileName, dataRow);
-            } catch (IOException ex) {
-                Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+        initFilesInProgress(oldFileName, newFileName);
+        try {
+            // TF, 20160815: check existence of the file - not something that should be done by catching the exception...
+            // TFE, 20191211: here we don't want to be as case insensitive as  the OS is
+            if (Files.exists(newFile)) {
                 result = false;
+            } else {
+                try {
+                    // System.out.printf("Time %s: Added files\n", getCurrentTimeStamp());
+                    Files.move(oldFile, newFile, StandardCopyOption.ATOMIC_MOVE);
+
+                    final Note dataRow = notesList.remove(oldFileName);
+                    dataRow.setGroup(newGroup);
+                    notesList.put(newFileName, dataRow);
+                } catch (IOException ex) {
+                    Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+                    result = false;
+                }
             }
-        }
         
-        if (result) {
-            // TFE, 20201227: the benfits of testing... finding an old bug :-)
-            note.setGroup(newGroup);
+            if (result) {
+                // TFE, 20201227: the benfits of testing... finding an old bug :-)
+                note.setGroup(newGroup);
+            }
+        } finally {
+            resetFilesInProgress(oldFileName, newFileName);
         }
-        
-        resetFilesInProgress();
         return result;
     }
 
@@ -583,7 +866,6 @@ public class FileManager implements INoteCRMDS {
         final boolean caseSensitiveRename = group.getName().toLowerCase().equals(newGroupName.toLowerCase());
 
         boolean result = true;
-        initFilesInProgress();
         
         // old and new part of note name
         final String oldNoteNamePrefix = buildGroupName(group);
@@ -637,6 +919,7 @@ public class FileManager implements INoteCRMDS {
 
                     final String newFileName = newNoteNamePrefix + filename.substring(oldNoteNamePrefix.length());
 
+                    initFilesInProgress(filename, newFileName);
                     try {
                         Files.move(Paths.get(this.notesPath, filename), Paths.get(this.notesPath, newFileName), StandardCopyOption.ATOMIC_MOVE);
                         
@@ -652,7 +935,9 @@ public class FileManager implements INoteCRMDS {
                         Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
                         result = false;
                         break;
-                   }
+                    } finally {
+                        resetFilesInProgress(filename, newFileName);
+                    }
                }
             } catch (IOException | DirectoryIteratorException ex) {
                 Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
@@ -660,7 +945,6 @@ public class FileManager implements INoteCRMDS {
             }
         }
         
-        resetFilesInProgress();
         return result;
     }
 
@@ -676,14 +960,17 @@ public class FileManager implements INoteCRMDS {
         return Files.exists(Paths.get(this.notesPath, fileName));
     }
 
-    private void initFilesInProgress() {
-        // disable watcher
-        myDirMonitor.disableMonitor();
+    // TFE, 20261017: don't disable the watcher anymore but tell him which files we're changing
+    private void initFilesInProgress(final String ... fileNames) {
+        for (String fileName : fileNames) {
+            myDirMonitor.expectChange(fileName);
+        }
     }
     
-    private void resetFilesInProgress() {
-        // enable watcher
-        myDirMonitor.enableMonitor();
+    private void resetFilesInProgress(final String ... fileNames) {
+        for (String fileName : fileNames) {
+            myDirMonitor.changeDone(fileName, Paths.get(notesPath, fileName));
+        }
     }
 
     public String getCurrentTimeStamp() {
@@ -696,38 +983,187 @@ public class FileManager implements INoteCRMDS {
         }
         
         final Set<Note> result = new HashSet<>();
+        findNotesWithText(searchText, getNoteSnapshots(notesList.values()), result::add, () -> false);
+        return result;
+    }
+    
+    /**
+     * Snapshot of the notes for a search - needs to be called on the FX thread.
+     * 
+     * @param notes notes to be searched
+     * @return snapshots of the notes
+     */
+    public List<NoteSnapshot> getNoteSnapshots(final Collection<Note> notes) {
+        final List<NoteSnapshot> result = new ArrayList<>(notes.size());
+        for (Note note : notes) {
+            result.add(new NoteSnapshot(note, buildNoteName(note)));
+        }
+        return result;
+    }
+    
+    /**
+     * Content of a note from its snapshot - read from the file if not yet loaded.
+     * 
+     * Can be used outside of the FX thread, nothing is stored in the note.
+     * 
+     * @param snapshot snapshot of the note
+     * @return content of the note
+     */
+    public String getNoteContent(final NoteSnapshot snapshot) {
+        if (snapshot.getContent() != null) {
+            return snapshot.getContent();
+        }
+        return readNoteFile(Paths.get(notesPath, snapshot.getFileName()), snapshot.getCharset());
+    }
+    
+    /**
+     * Find notes containing the search text and pass them to the consumer as soon as they are found.
+     * 
+     * Can be called outside of the FX thread - therefore snapshots of the notes to check need to be provided.
+     * 
+     * TFE, 20261017: a search text without "<" or ">" is matched against the text of the notes - without tags
+     * and with decoded entities - and not against the html anymore. E.g. "checkbox" only finds notes that
+     * contain that word, "<input type=\"checkbox\"" finds notes with checkboxes.
+     * 
+     * @param searchText pattern to search for
+     * @param notes snapshots of the notes to check - see getNoteSnapshots()
+     * @param consumer gets called for each note found
+     * @param isCancelled gets checked before each note - search stops once it returns true
+     */
+    public void findNotesWithText(
+            final String searchText, 
+            final Collection<NoteSnapshot> notes, 
+            final Consumer<Note> consumer, 
+            final BooleanSupplier isCancelled) {
+        if (searchText == null || searchText.isEmpty()) {
+            for (NoteSnapshot note : notes) {
+                consumer.accept(note.getNote());
+            }
+            return;
+        }
         
-        // TFE, 20230103: bugfix to match also patterns once content has been loaded
-        // so it uses patterns as well in both cases
+        // TFE, 20261017: the text index only knows the text of a note - searching for html needs the full content
+        final boolean searchContent = searchText.contains("<") || searchText.contains(">");
         final Pattern searchPattern = Pattern.compile(searchText);
         
+        // the index only knows what has been saved - so check unsaved notes first
+        final Map<Note, NoteSnapshot> savedNotes = new IdentityHashMap<>();
+        for (NoteSnapshot note : notes) {
+            if (note.getUnsavedContent() != null) {
+                final String content = searchContent ? note.getUnsavedContent() : NoteTextExtractor.getInstance().getText(note.getNote(), note.getUnsavedContent());
+                if (searchPattern.matcher(content).find()) {
+                    consumer.accept(note.getNote());
+                }
+            } else {
+                savedNotes.put(note.getNote(), note);
+            }
+        }
+        
+        // TFE, 20261017: still building the index after start? reading all files ourselves isn't faster
+        // but never wait on the FX thread - e.g. tasks & links on startup - scan the files instead
+        final boolean useIndex = Platform.isFxApplicationThread() ? noteTextIndex.isReady() : noteTextIndex.awaitReady();
+        
+        if (searchContent) {
+            // TFE, 20261017: only check notes that contain all the trigrams of the literal parts of the pattern
+            // e.g. on startup only notes with checkboxes need to be read for the tasks
+            findNotesWithContent(
+                    searchText, 
+                    searchPattern, 
+                    getCandidates(savedNotes, useIndex ? noteTextIndex.getContentCandidateNotes(searchText) : null), 
+                    consumer, 
+                    isCancelled);
+        } else if (useIndex && NoteTextIndex.isWord(searchText)) {
+            // that is what the index is for
+            for (NoteSnapshot note : getCandidates(savedNotes, noteTextIndex.getNotesWithWord(searchText))) {
+                consumer.accept(note.getNote());
+            }
+        } else {
+            final Collection<NoteSnapshot> candidates = getCandidates(savedNotes, useIndex ? noteTextIndex.getCandidateNotes(searchText) : null);
+            for (NoteSnapshot note : candidates) {
+                if (isCancelled.getAsBoolean()) {
+                    return;
+                }
+                if (searchPattern.matcher(getNoteText(note)).find()) {
+                    consumer.accept(note.getNote());
+                }
+            }
+        }
+    }
+    
+    // notes to check limited to the ones found by the index - if any
+    private Collection<NoteSnapshot> getCandidates(final Map<Note, NoteSnapshot> notes, final Set<Note> indexNotes) {
+        if (indexNotes == null) {
+            return notes.values();
+        }
+        
+        final List<NoteSnapshot> result = new ArrayList<>();
+        for (Note note : indexNotes) {
+            final NoteSnapshot snapshot = notes.get(note);
+            if (snapshot != null) {
+                result.add(snapshot);
+            }
+        }
+        return result;
+    }
+    
+    // TFE, 20261017: current text of a note: from the editor, the note or the file - whatever is available
+    // extracted text is cached as long as the content / file doesn't change
+    private String getNoteText(final NoteSnapshot snapshot) {
+        final Note note = snapshot.getNote();
+        if (snapshot.getContent() != null) {
+            return NoteTextExtractor.getInstance().getText(note, snapshot.getContent());
+        }
+        
+        final Path notePath = Paths.get(notesPath, snapshot.getFileName());
+        long fileSize = -1;
+        long fileModified = -1;
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(notePath, BasicFileAttributes.class);
+            fileSize = attributes.size();
+            fileModified = attributes.lastModifiedTime().toMillis();
+        } catch (IOException ex) {
+            Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
+        }
+
+        final String text = NoteTextExtractor.getInstance().getFileText(note, fileSize, fileModified);
+        if (text != null) {
+            return text;
+        }
+        return NoteTextExtractor.getInstance().putFileText(note, fileSize, fileModified, readNoteFile(notePath, snapshot.getCharset()));
+    }
+    
+    private void findNotesWithContent(
+            final String searchText, 
+            final Pattern searchPattern, 
+            final Collection<NoteSnapshot> notes, 
+            final Consumer<Note> consumer, 
+            final BooleanSupplier isCancelled) {
         // iterate over all file and check context for searchText
-        for (Map.Entry<String, Note> note : notesList.entrySet()) {
+        for (NoteSnapshot note : notes) {
+            if (isCancelled.getAsBoolean()) {
+                return;
+            }
+
             // TFE, 20201024: if we already have the note text we don't need the scanner
-            if (note.getValue().getNoteFileContent() != null || note.getValue().getNoteEditorContent() != null) {
-                String content = note.getValue().getNoteEditorContent();
-                if (content == null) {
-                    content = note.getValue().getNoteFileContent();
-                }
-                
-                if (searchPattern.matcher(content).find()) {
-                    result.add(note.getValue());
+            if (note.getContent() != null) {
+                // TFE, 20230103: bugfix to match also patterns once content has been loaded
+                // so it uses patterns as well in both cases
+                if (searchPattern.matcher(note.getContent()).find()) {
+                    consumer.accept(note.getNote());
                 }
             } else {
                 // see https://stackoverflow.com/questions/4886154/whats-the-fastest-way-to-scan-a-very-large-file-in-java/4886765#4886765 for fast algo
-                final File noteFile = new File(this.notesPath, buildNoteName(note.getValue().getGroup(), note.getValue().getNoteName()));
+                final File noteFile = new File(this.notesPath, note.getFileName());
 
                 try (final Scanner scanner = new Scanner(noteFile)) {
                     if (scanner.findWithinHorizon(searchText, 0) != null) {
-                        result.add(note.getValue());
+                        consumer.accept(note.getNote());
                     }
                 } catch (FileNotFoundException ex) {
                     Logger.getLogger(FileManager.class.getName()).log(Level.SEVERE, null, ex);
                 }
             }
         }
-        
-        return result;
     }
     
     public boolean backupNote(final Note note, final String suffix) {
@@ -5,6 +5,7 @@
  */
 package tf.ownnote.ui.helper;
 
+import java.util.function.BooleanSupplier;
 import tf.ownnote.ui.notes.Note;
 
 /**
@@ -16,4 +17,19 @@ import tf.ownnote.ui.notes.Note;
  */
 public interface IFileContentChangeSubscriber {
     abstract boolean processFileContentChange(final FileContentChangeType changeType, final Note note, final String oldContent, final String newContent);
+    
+    // TFE, 20261017: change with the range that has been modified
+    // subscribers that only need to look at the changed part should override this and avoid comparing the full contents
+    default boolean processFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change) {
+        return processFileContentChange(changeType, note, change.getOldContent(), change.getNewContent());
+    }
+    
+    // TFE, 20261017: changes from the editor are dispatched in two steps
+    // this is called on a worker thread for anything expensive that doesn't touch the model
+    // the returned update is then run on the FX thread - default: do everything there
+    default BooleanSupplier prepareFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change) {
+        return () -> {
+            return processFileContentChange(changeType, note, change);
+        };
+    }
 }
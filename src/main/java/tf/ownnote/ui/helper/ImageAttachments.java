@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import tf.ownnote.ui.notes.NoteMetaData;
+
+/**
+ * Store for images outside of the note content.
+ * 
+ * Image bytes are stored once in the attachments directory and named by the hash of their content - 
+ * the same image pasted into multiple notes is stored only once. Notes reference the file via its url
+ * and the editor loads the image only when it's shown.
+ * 
+ * @author thomas
+ */
+public class ImageAttachments {
+    private final static ImageAttachments INSTANCE = new ImageAttachments();
+
+    private final static String HASH_ALGORITHM = "SHA-256";
+    private final static String DATA_START = "data:";
+    private final static String BASE64_START = ";base64,";
+    private final static String IMAGE_TYPE_START = "image/";
+    private final static String FILE_URL_START = "file:";
+    private final static String LAZY_LOADING = " loading=\"lazy\"";
+    private final static String LOADING_ATTRIBUTE = "loading=";
+    // images from the store: directory part might be outdated if the notes have been moved
+    private final static Pattern STORED_IMAGE_PATTERN = Pattern.compile("src=(['\"])(file:[^'\"]*/)([0-9a-f]{64}\\.[a-z0-9]+)\\1");
+
+    private ImageAttachments() {
+        super();
+    }
+
+    public static ImageAttachments getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Store image data - if not already stored.
+     * 
+     * @param data image bytes
+     * @param mediaType media type, e.g. "image/png"
+     * @return name of the file in the attachments directory
+     * @throws IOException if the file can't be written
+     */
+    public String storeImage(final byte[] data, final String mediaType) throws IOException {
+        final String fileName = getHash(data) + "." + getExtension(mediaType);
+        final Path imagePath = Paths.get(NoteMetaData.getAttachmentPath(), fileName);
+        
+        // same name, same content
+        if (!Files.exists(imagePath)) {
+            Files.createDirectories(imagePath.getParent());
+            
+            // nobody should see a half written image
+            final Path tempPath = Files.createTempFile(imagePath.getParent(), fileName, ".tmp");
+            try {
+                Files.write(tempPath, data);
+                Files.move(tempPath, imagePath, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempPath);
+            }
+        }
+        
+        return fileName;
+    }
+    
+    public String getImageUrl(final String fileName) {
+        return getAttachmentUrl() + fileName;
+    }
+    
+    private static String getAttachmentUrl() {
+        final String result = Paths.get(NoteMetaData.getAttachmentPath()).toUri().toString();
+        return result.endsWith("/") ? result : result + "/";
+    }
+    
+    /**
+     * Replace all inline images by references to the store.
+     * 
+     * @param content note content
+     * @return content with stored images - same instance if nothing has been changed
+     */
+    public String externalizeImages(final String content) {
+        return externalizeImages(content, null);
+    }
+    
+    /**
+     * Replace all inline images by references to the store.
+     * 
+     * Images that can't be stored are kept inline.
+     * 
+     * @param content note content
+     * @param errors list to add the errors for images that couldn't be stored - might be null
+     * @return content with stored images - same instance if nothing has been changed
+     */
+    public String externalizeImages(final String content, final List<Exception> errors) {
+        if (content == null) {
+            return content;
+        }
+
+        // start of tag, start & end of the image data
+        final List<int[]> images = NoteContentAnalyzer.getInstance().getAnalysis(content).getImages();
+        if (images.isEmpty()) {
+            return content;
+        }
+        
+        final StringBuilder result = new StringBuilder(content.length() / 4);
+        int pos = 0;
+        for (int[] image : images) {
+            final int urlStart = content.lastIndexOf(DATA_START, image[1]);
+            if (urlStart < image[0]) {
+                continue;
+            }
+            final String mediaType = content.substring(urlStart + DATA_START.length(), image[1] - BASE64_START.length());
+            if (!mediaType.startsWith(IMAGE_TYPE_START)) {
+                continue;
+            }
+
+            final String fileName;
+            try {
+                fileName = storeImage(Base64.getMimeDecoder().decode(content.substring(image[1], image[2])), mediaType);
+            } catch (IOException | IllegalArgumentException ex) {
+                // keep the image as it is
+                Logger.getLogger(ImageAttachments.class.getName()).log(Level.SEVERE, null, ex);
+                if (errors != null) {
+                    errors.add(ex);
+                }
+                continue;
+            }
+            
+            result.append(content, pos, urlStart);
+            result.append(getImageUrl(fileName));
+            // closing quote of the src attribute
+            result.append(content.charAt(image[2]));
+            pos = image[2] + 1;
+
+            // and now let the editor load it only when its shown
+            final int tagEnd = content.indexOf('>', pos);
+            if (tagEnd > -1 && 
+                    !content.substring(image[0], urlStart).contains(LOADING_ATTRIBUTE) && 
+                    !content.substring(pos, tagEnd).contains(LOADING_ATTRIBUTE)) {
+                result.append(LAZY_LOADING);
+            }
+        }
+        
+        if (pos == 0) {
+            return content;
+        }
+        result.append(content, pos, content.length());
+        
+        return result.toString();
+    }
+    
+    /**
+     * Make sure images from the store point to the current attachments directory.
+     * 
+     * @param content note content
+     * @return content with updated urls - same instance if nothing has been changed
+     */
+    public String updateImagePaths(final String content) {
+        if (content == null || !content.contains(FILE_URL_START)) {
+            return content;
+        }
+        
+        final String attachmentUrl = getAttachmentUrl();
+        StringBuilder result = null;
+        int pos = 0;
+        final Matcher matcher = STORED_IMAGE_PATTERN.matcher(content);
+        while (matcher.find()) {
+            if (!attachmentUrl.equals(matcher.group(2))) {
+                if (result == null) {
+                    result = new StringBuilder(content.length());
+                }
+                result.append(content, pos, matcher.start(2));
+                result.append(attachmentUrl);
+                pos = matcher.end(2);
+            }
+        }
+        
+        if (result == null) {
+            return content;
+        }
+        result.append(content, pos, content.length());
+
+        return result.toString();
+    }
+
+    private static String getHash(final byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(HASH_ALGORITHM).digest(data));
+        } catch (NoSuchAlgorithmException ex) {
+            // every jvm needs to have SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+    
+    protected static String getExtension(final String mediaType) {
+        String result = mediaType.toLowerCase();
+        if (result.startsWith(IMAGE_TYPE_START)) {
+            result = result.substring(IMAGE_TYPE_START.length());
+        }
+        // image/svg+xml, image/x-icon, ...
+        final int plusPos = result.indexOf('+');
+        if (plusPos > -1) {
+            result = result.substring(0, plusPos);
+        }
+        if (result.startsWith("x-")) {
+            result = result.substring(2);
+        }
+        if ("jpeg".equals(result)) {
+            result = "jpg";
+        }
+        result = result.replaceAll("[^a-z0-9]", "");
+        
+        return result.isEmpty() ? "img" : result;
+    }
+}
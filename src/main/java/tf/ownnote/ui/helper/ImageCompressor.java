@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import tf.helper.general.ImageHelper;
+
+/**
+ * Compress the inline images of note contents.
+ * 
+ * Images of all contents are compressed in parallel. Each content is then rebuilt in one pass 
+ * with the compressed image data - only images that actually got smaller are replaced.
+ * 
+ * @author thomas
+ */
+public class ImageCompressor {
+    private final static ImageCompressor INSTANCE = new ImageCompressor();
+
+    private final static String DATA_START = "data:";
+    private final static String BASE64_START = ";base64,";
+    private final static String IMAGE_TYPE_START = "image/";
+    private final static String WIDTH_ATTRIBUTE = "width=";
+    private final static String HEIGHT_ATTRIBUTE = "height=";
+    // compression re-encodes the image as png or jpeg - gif animations would be lost, so they are left as they are
+    private final static String GIF_TYPE = "gif";
+    
+    private static class ImageJob {
+        private final int contentIndex;
+        private final int dataStart;
+        private final int dataEnd;
+        private final String imageType;
+        private final int imageWidth;
+        private final int imageHeight;
+        private Future<String> result;
+
+        private ImageJob(final int index, final int start, final int end, final String type, final int width, final int height) {
+            contentIndex = index;
+            dataStart = start;
+            dataEnd = end;
+            imageType = type;
+            imageWidth = width;
+            imageHeight = height;
+        }
+    }
+
+    /**
+     * Compression of the data of a single image.
+     */
+    protected interface ImageCompression {
+        /**
+         * @param imageData base64 encoded image data
+         * @param imageType image type, e.g. png
+         * @param width width of the image in the note - -1 if not set
+         * @param height height of the image in the note - -1 if not set
+         * @return compressed base64 encoded image data
+         */
+        String compress(final String imageData, final String imageType, final int width, final int height);
+    }
+    
+    private final ImageCompression compression;
+
+    private ImageCompressor() {
+        this(ImageHelper::compressBase64Image);
+    }
+
+    // TFE, 20261017: tests don't need to compress real images
+    protected ImageCompressor(final ImageCompression compression) {
+        super();
+        
+        this.compression = compression;
+    }
+
+    public static ImageCompressor getInstance() {
+        return INSTANCE;
+    }
+    
+    public String compressImages(final String content, final BiConsumer<Integer, Integer> progress) {
+        return compressImages(List.of(content), progress).get(0);
+    }
+    
+    /**
+     * Compress the images of all contents. Progress is reported from the worker threads.
+     * 
+     * @param contents note contents
+     * @param progress called with number of images done and total number of images
+     * @return contents with compressed images - same instance for each content that hasn't been changed
+     */
+    public List<String> compressImages(final List<String> contents, final BiConsumer<Integer, Integer> progress) {
+        final List<ImageJob> jobs = new ArrayList<>();
+        for (int i = 0; i < contents.size(); i++) {
+            findImages(contents.get(i), i, jobs);
+        }
+        
+        final List<String> result = new ArrayList<>(contents);
+        if (jobs.isEmpty()) {
+            return result;
+        }
+
+        final int total = jobs.size();
+        final AtomicInteger done = new AtomicInteger(0);
+        // compression is cpu bound - no need for more threads than cores
+        try (ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors())) {
+            for (ImageJob job : jobs) {
+                job.result = executor.submit(() -> {
+                    try {
+                        return compression.compress(
+                                contents.get(job.contentIndex).substring(job.dataStart, job.dataEnd), 
+                                job.imageType, 
+                                job.imageWidth, 
+                                job.imageHeight);
+                    } finally {
+                        if (progress != null) {
+                            progress.accept(done.incrementAndGet(), total);
+                        }
+                    }
+                });
+            }
+            
+            // and now put it all together - jobs are in order of contents and position
+            int jobIndex = 0;
+            while (jobIndex < jobs.size()) {
+                final int contentIndex = jobs.get(jobIndex).contentIndex;
+                final String content = contents.get(contentIndex);
+
+                StringBuilder newContent = null;
+                int pos = 0;
+                for (; jobIndex < jobs.size() && jobs.get(jobIndex).contentIndex == contentIndex; jobIndex++) {
+                    final ImageJob job = jobs.get(jobIndex);
+
+                    String imageData = null;
+                    try {
+                        imageData = job.result.get();
+                    } catch (InterruptedException | ExecutionException ex) {
+                        Logger.getLogger(ImageCompressor.class.getName()).log(Level.SEVERE, null, ex);
+                    }
+                    if (imageData == null || imageData.length() >= job.dataEnd - job.dataStart) {
+                        // nothing gained
+                        continue;
+                    }
+
+                    if (newContent == null) {
+                        newContent = new StringBuilder(content.length());
+                    }
+                    newContent.append(content, pos, job.dataStart);
+                    newContent.append(imageData);
+                    pos = job.dataEnd;
+                    Logger.getLogger(ImageCompressor.class.getName()).log(Level.FINE, "Replaced {0} chars of image data with {1} chars for image starting @{2}", 
+                            new Object[] {job.dataEnd - job.dataStart, imageData.length(), job.dataStart});
+                }
+                
+                if (newContent != null) {
+                    newContent.append(content, pos, content.length());
+                    result.set(contentIndex, newContent.toString());
+                }
+            }
+        }
+        
+        return result;
+    }
+    
+    private static void findImages(final String content, final int contentIndex, final List<ImageJob> jobs) {
+        if (content == null) {
+            return;
+        }
+
+        // start of tag, start & end of the image data
+        for (int[] image : NoteContentAnalyzer.getInstance().getAnalysis(content).getImages()) {
+            final int urlStart = content.lastIndexOf(DATA_START, image[1]);
+            if (urlStart < image[0]) {
+                continue;
+            }
+            final String mediaType = content.substring(urlStart + DATA_START.length(), image[1] - BASE64_START.length());
+            if (!mediaType.startsWith(IMAGE_TYPE_START)) {
+                continue;
+            }
+            final String imageType = mediaType.substring(IMAGE_TYPE_START.length());
+            if (GIF_TYPE.equals(imageType)) {
+                continue;
+            }
+            
+            // width="xyz" height="abc" might come before or after the src attribute
+            int tagEnd = content.indexOf('>', image[2]);
+            if (tagEnd == -1) {
+                tagEnd = content.length();
+            }
+            final String attributes = content.substring(image[0], urlStart) + content.substring(image[2], tagEnd);
+            final Integer imageWidth = getIntAttribute(attributes, WIDTH_ATTRIBUTE);
+            final Integer imageHeight = getIntAttribute(attributes, HEIGHT_ATTRIBUTE);
+            if (imageWidth == null || imageHeight == null) {
+                // something wrong with this image...
+                continue;
+            }
+
+            jobs.add(new ImageJob(contentIndex, image[1], image[2], imageType, imageWidth, imageHeight));
+        }
+    }
+    
+    // -1 if the attribute isn't set, null if it can't be parsed
+    private static Integer getIntAttribute(final String attributes, final String name) {
+        int start = attributes.indexOf(name);
+        // not part of some other attribute name like "data-width="
+        while (start > 0 && !Character.isWhitespace(attributes.charAt(start - 1))) {
+            start = attributes.indexOf(name, start + 1);
+        }
+        if (start == -1) {
+            return -1;
+        }
+        
+        start += name.length();
+        if (start < attributes.length() && (attributes.charAt(start) == '"' || attributes.charAt(start) == '\'')) {
+            start++;
+        }
+        int end = start;
+        while (end < attributes.length() && Character.isDigit(attributes.charAt(end))) {
+            end++;
+        }
+        
+        try {
+            return Integer.valueOf(attributes.substring(start, end));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
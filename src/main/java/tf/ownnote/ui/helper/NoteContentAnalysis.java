@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything NoteContentAnalyzer has found in a note content.
+ * 
+ * @author thomas
+ */
+public class NoteContentAnalysis implements INoteContentConsumer {
+    private final List<Integer> taskPositions = new ArrayList<>();
+    private final List<Integer> noteLinkPositions = new ArrayList<>();
+    private final List<String> noteLinks = new ArrayList<>();
+    // start of tag, start & end of the image data
+    private final List<int[]> images = new ArrayList<>();
+    private final List<int[]> comments = new ArrayList<>();
+    private final List<Issue> issues = new ArrayList<>();
+    
+    public static class Issue {
+        private final VerifyNoteContent.ContentIssues issue;
+        private final int textPos;
+        private final String text;
+        
+        private Issue(final VerifyNoteContent.ContentIssues issue, final int textPos, final String text) {
+            this.issue = issue;
+            this.textPos = textPos;
+            this.text = text;
+        }
+
+        public VerifyNoteContent.ContentIssues getIssue() {
+            return issue;
+        }
+
+        public int getTextPos() {
+            return textPos;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    @Override
+    public void foundTask(final int textPos) {
+        taskPositions.add(textPos);
+    }
+
+    @Override
+    public void foundNoteLink(final int textPos, final String noteFileName) {
+        noteLinkPositions.add(textPos);
+        noteLinks.add(noteFileName);
+    }
+
+    @Override
+    public void foundImage(final int textPos, final int dataStart, final int dataEnd) {
+        images.add(new int[] {textPos, dataStart, dataEnd});
+    }
+
+    @Override
+    public void foundComment(final int textPos, final int endPos) {
+        comments.add(new int[] {textPos, endPos});
+    }
+
+    @Override
+    public void foundIssue(final VerifyNoteContent.ContentIssues issue, final int textPos, final String text) {
+        issues.add(new Issue(issue, textPos, text));
+    }
+
+    public List<Integer> getTaskPositions() {
+        return Collections.unmodifiableList(taskPositions);
+    }
+
+    public List<Integer> getNoteLinkPositions() {
+        return Collections.unmodifiableList(noteLinkPositions);
+    }
+
+    public List<String> getNoteLinks() {
+        return Collections.unmodifiableList(noteLinks);
+    }
+
+    public List<int[]> getImages() {
+        return Collections.unmodifiableList(images);
+    }
+
+    public List<int[]> getComments() {
+        return Collections.unmodifiableList(comments);
+    }
+
+    public List<Issue> getIssues() {
+        return Collections.unmodifiableList(issues);
+    }
+}
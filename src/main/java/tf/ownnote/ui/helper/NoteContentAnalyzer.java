@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import tf.ownnote.ui.editor.HTMLEditor;
+import tf.ownnote.ui.links.LinkManager;
+import tf.ownnote.ui.tasks.TaskData;
+
+/**
+ * Walk once through note content and find everything the different managers are interested in:
+ * tasks, note links, images, comments and content issues.
+ * 
+ * Only the positions of '<' are visited - everything we look for starts with a tag or a comment.
+ * Image data is skipped as a whole.
+ * 
+ * On load & save of a note TaskManager, LinkManager and VerifyNoteContent all look at the same 
+ * content string. So the last results are kept per content instance and the second and third 
+ * caller get them without another pass.
+ * 
+ * @author thomas
+ */
+public class NoteContentAnalyzer {
+    private final static NoteContentAnalyzer INSTANCE = new NoteContentAnalyzer();
+    
+    private final static int CACHE_SIZE = 8;
+
+    private final static String COMMENT_START = "<!--";
+    private final static String COMMENT_END = "-->";
+    private final static String ID_COMMENT_START = "<!-- id=\"";
+    private final static String INPUT_START = "<input";
+    private final static String IMAGE_START = "<img";
+    private final static String DATA_START = "data:";
+    private final static String BASE64_START = ";base64,";
+    private final static String LINK_START = "<a href=";
+    private final static Pattern LINK_POSTFIX_PATTERN = Pattern.compile(LinkManager.ANY_LINK_POSTFIX);
+    
+    // content is only referenced weakly - we don't want to keep large notes alive just for the cache
+    private final LinkedList<CachedAnalysis> cache = new LinkedList<>();
+    
+    private static class CachedAnalysis {
+        private final WeakReference<String> content;
+        private final NoteContentAnalysis analysis;
+
+        private CachedAnalysis(final String content, final NoteContentAnalysis analysis) {
+            this.content = new WeakReference<>(content);
+            this.analysis = analysis;
+        }
+    }
+
+    private NoteContentAnalyzer() {
+        super();
+    }
+
+    public static NoteContentAnalyzer getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Everything that can be found in the content - from cache if the same content has been analyzed recently.
+     * 
+     * @param content note content
+     * @return the analysis
+     */
+    public NoteContentAnalysis getAnalysis(final String content) {
+        synchronized (cache) {
+            final Iterator<CachedAnalysis> iter = cache.iterator();
+            while (iter.hasNext()) {
+                final CachedAnalysis cached = iter.next();
+                final String cachedContent = cached.content.get();
+                if (cachedContent == null) {
+                    iter.remove();
+                } else if (cachedContent == content) {
+                    return cached.analysis;
+                }
+            }
+        }
+        
+        final NoteContentAnalysis result = new NoteContentAnalysis();
+        analyze(content, result);
+
+        synchronized (cache) {
+            cache.addFirst(new CachedAnalysis(content, result));
+            while (cache.size() > CACHE_SIZE) {
+                cache.removeLast();
+            }
+        }
+        
+        return result;
+    }
+    
+    public void analyze(final String content, final INoteContentConsumer consumer) {
+        analyze(content, 0, (content != null) ? content.length() : 0, consumer);
+    }
+    
+    /**
+     * Walk through the content and tell the consumer about everything that starts in [start, end).
+     * 
+     * @param content note content
+     * @param start start position
+     * @param end end position - things starting before may extend beyond
+     * @param consumer who is interested
+     */
+    public void analyze(final String content, final int start, final int end, final INoteContentConsumer consumer) {
+        if (content == null || content.isEmpty()) {
+            return;
+        }
+        
+        final Matcher linkMatcher = LINK_POSTFIX_PATTERN.matcher(content);
+        final Matcher attributesMatcher = VerifyNoteContent.ContentIssues.ADDITIONAL_CHECKBOX_ATTRIBUTES.getIssuePattern().matcher(content);
+        final Set<String> metaDataIds = new HashSet<>();
+
+        int pos = content.indexOf('<', start);
+        while (pos > -1 && pos < end) {
+            int nextPos = pos + 1;
+            
+            if (content.startsWith(COMMENT_START, pos)) {
+                if (pos >= COMMENT_END.length() && content.startsWith(COMMENT_END, pos - COMMENT_END.length())) {
+                    consumer.foundIssue(VerifyNoteContent.ContentIssues.REPEATED_METADATA, pos - COMMENT_END.length(), COMMENT_END + COMMENT_START);
+                }
+                
+                final int commentEnd = content.indexOf(COMMENT_END, pos + COMMENT_START.length());
+                consumer.foundComment(pos, (commentEnd == -1) ? content.length() : commentEnd + COMMENT_END.length());
+                
+                if (content.startsWith(ID_COMMENT_START, pos)) {
+                    final int idStart = pos + ID_COMMENT_START.length();
+                    final int idEnd = content.indexOf('"', idStart);
+                    if (idEnd > -1) {
+                        final String id = content.substring(idStart, idEnd);
+                        if (!metaDataIds.add(id)) {
+                            consumer.foundIssue(VerifyNoteContent.ContentIssues.DUPLICATE_METADATA_ID, idStart, id);
+                        }
+                    }
+                }
+            } else if (content.startsWith(INPUT_START, pos)) {
+                if (content.startsWith(TaskData.ANY_BOXES, pos)) {
+                    consumer.foundTask(pos);
+                }
+                
+                final int tagEnd = content.indexOf('>', pos);
+                if (tagEnd > -1) {
+                    attributesMatcher.region(pos, tagEnd + 1);
+                    if (attributesMatcher.lookingAt()) {
+                        consumer.foundIssue(VerifyNoteContent.ContentIssues.ADDITIONAL_CHECKBOX_ATTRIBUTES, pos, attributesMatcher.group());
+                    }
+                }
+            } else if (content.startsWith(LINK_START, pos)) {
+                findNoteLink(content, pos, linkMatcher, consumer);
+            } else if (content.startsWith(IMAGE_START, pos)) {
+                nextPos = findImage(content, pos, consumer);
+            }
+
+            pos = content.indexOf('<', nextPos);
+        }
+    }
+    
+    private static void findNoteLink(final String content, final int pos, final Matcher linkMatcher, final INoteContentConsumer consumer) {
+        final int quotePos = pos + LINK_START.length();
+        if (quotePos >= content.length() || (content.charAt(quotePos) != '"' && content.charAt(quotePos) != '\'')) {
+            return;
+        }
+        if (!content.startsWith(HTMLEditor.NOTE_HTML_LINK_TYPE, quotePos + 1)) {
+            return;
+        }
+        
+        // note name is everything up to "htm" + the rest of a note link - on the same line
+        final int nameStart = quotePos + 1 + HTMLEditor.NOTE_HTML_LINK_TYPE.length();
+        int checkedPos = nameStart;
+        int extPos = content.indexOf(FileManager.NOTE_EXT, nameStart);
+        while (extPos > -1) {
+            for (; checkedPos < extPos; checkedPos++) {
+                final char c = content.charAt(checkedPos);
+                if (c == '\n' || c == '\r') {
+                    return;
+                }
+            }
+            
+            linkMatcher.region(extPos + FileManager.NOTE_EXT.length(), content.length());
+            if (linkMatcher.lookingAt()) {
+                // name ends before "." + NOTE_EXT
+                if (extPos - 1 > nameStart) {
+                    consumer.foundNoteLink(pos, content.substring(nameStart, extPos - 1) + "." + FileManager.NOTE_EXT);
+                }
+                return;
+            }
+
+            extPos = content.indexOf(FileManager.NOTE_EXT, extPos + 1);
+        }
+    }
+    
+    // returns the position to continue from
+    private static int findImage(final String content, final int pos, final INoteContentConsumer consumer) {
+        // only look at the attribute values inside the tag
+        int checkPos = pos + IMAGE_START.length();
+        while (checkPos < content.length()) {
+            final char c = content.charAt(checkPos);
+            if (c == '>') {
+                break;
+            }
+            if (c == '"' || c == '\'') {
+                final int valueEnd = content.indexOf(c, checkPos + 1);
+                if (valueEnd == -1) {
+                    break;
+                }
+                
+                if (content.startsWith(DATA_START, checkPos + 1)) {
+                    final int dataStart = content.indexOf(BASE64_START, checkPos + 1);
+                    if (dataStart > -1 && dataStart < valueEnd) {
+                        consumer.foundImage(pos, dataStart + BASE64_START.length(), valueEnd);
+                        // no '<' in base64 data
+                        return valueEnd;
+                    }
+                }
+                checkPos = valueEnd + 1;
+            } else {
+                checkPos++;
+            }
+        }
+        
+        return pos + 1;
+    }
+}
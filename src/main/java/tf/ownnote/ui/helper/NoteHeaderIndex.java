@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent index of the decoded metadata header of each note file.
+ * 
+ * Entries are keyed by file name and only valid as long as size and last modified time of the file
+ * are unchanged. That way we only need to open files that have changed since the last run.
+ * 
+ * @author thomas
+ */
+public class NoteHeaderIndex {
+    private final static XStreamIndexFile<Entry> INDEX_FILE = new XStreamIndexFile<>("note_index.xml", 1, new Class[] {Entry.class}, (xstream) -> {
+        xstream.alias("note", Entry.class);
+        xstream.useAttributeFor(Entry.class, "fileName");
+        xstream.useAttributeFor(Entry.class, "size");
+        xstream.useAttributeFor(Entry.class, "modified");
+    });
+    
+    private Map<String, Entry> entries = new HashMap<>();
+
+    public static class Entry {
+        private String fileName;
+        private long size;
+        private long modified;
+        // decoded html comment - null for notes without metadata
+        private String[] header;
+        
+        public Entry() {
+            super();
+        }
+
+        public Entry(final String fileName, final long size, final long modified, final String[] header) {
+            super();
+            
+            this.fileName = fileName;
+            this.size = size;
+            this.modified = modified;
+            this.header = header;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getModified() {
+            return modified;
+        }
+
+        public String[] getHeader() {
+            return header;
+        }
+        
+        public boolean matches(final long size, final long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+
+    public NoteHeaderIndex() {
+        super();
+    }
+    
+    public void clear() {
+        entries = new HashMap<>();
+    }
+    
+    // no synchronization: lookups can happen in parallel as long as nobody changes the index
+    public Entry get(final String fileName) {
+        return entries.get(fileName);
+    }
+    
+    public void put(final Entry entry) {
+        entries.put(entry.getFileName(), entry);
+    }
+    
+    public void remove(final String fileName) {
+        entries.remove(fileName);
+    }
+    
+    public void setAll(final List<Entry> newEntries) {
+        final Map<String, Entry> newMap = new HashMap<>();
+        for (Entry entry : newEntries) {
+            newMap.put(entry.getFileName(), entry);
+        }
+        entries = newMap;
+    }
+    
+    public void load(final String notesPath) {
+        setAll(INDEX_FILE.load(notesPath));
+    }
+    
+    public void save(final String notesPath) {
+        if (notesPath == null || entries.isEmpty()) {
+            return;
+        }
+        
+        INDEX_FILE.save(notesPath, entries.values());
+    }
+}
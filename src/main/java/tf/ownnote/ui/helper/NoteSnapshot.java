@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.nio.charset.Charset;
+import tf.ownnote.ui.notes.Note;
+
+/**
+ * Everything a search needs to know about a note - taken on the FX thread.
+ * 
+ * The note itself is only used as identity, all of its properties belong to the FX thread.
+ * 
+ * @author thomas
+ */
+public class NoteSnapshot {
+    private final Note note;
+    private final String fileName;
+    private final Charset charset;
+    // editor content if not yet saved
+    private final String unsavedContent;
+    // content from editor or file - if already loaded
+    private final String content;
+    
+    protected NoteSnapshot(final Note note, final String fileName) {
+        super();
+        
+        this.note = note;
+        this.fileName = fileName;
+        charset = note.getMetaData().getCharset();
+        
+        unsavedContent = note.hasUnsavedChanges() ? note.getNoteEditorContent() : null;
+        content = (note.getNoteEditorContent() != null) ? note.getNoteEditorContent() : note.getNoteFileContent();
+    }
+
+    public Note getNote() {
+        return note;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public String getUnsavedContent() {
+        return unsavedContent;
+    }
+
+    public String getContent() {
+        return content;
+    }
+}
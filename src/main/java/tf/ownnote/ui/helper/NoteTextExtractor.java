@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.unbescape.html.HtmlEscape;
+import tf.ownnote.ui.notes.Note;
+
+/**
+ * Extract the searchable text from the html content of a note.
+ *
+ * Tags, comments (e.g. the metadata of tasks) and the payload of embedded images are skipped
+ * in a single pass - without running a regex over megabytes of base64 data. Block elements
+ * are replaced by a line break so that words of different paragraphs don't get glued together.
+ *
+ * Extracted text is cached per note revision: the content string for notes that are in memory
+ * and size & last modified time for notes that had to be read from file.
+ *
+ * @author thomas
+ */
+public class NoteTextExtractor {
+    private final static NoteTextExtractor INSTANCE = new NoteTextExtractor();
+
+    private final static int MAX_CACHE_SIZE = 1000;
+
+    private final static String COMMENT_START = "<!--";
+    private final static String COMMENT_END = "-->";
+    protected final static String BASE64_START = ";base64,";
+    private final static String[] BLOCK_TAGS = {"p", "br", "div", "li", "tr", "td", "th", "h1", "h2", "h3", "h4", "h5", "h6", "pre", "blockquote", "hr"};
+    private final static String[] SKIP_CONTENT_TAGS = {"script", "style"};
+
+    // notes are identified by identity since equals() & hashCode() of Note change with name & group
+    private final Map<NoteKey, CachedText> textCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<NoteKey, CachedText> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    };
+
+    private NoteTextExtractor() {
+        super();
+    }
+
+    public static NoteTextExtractor getInstance() {
+        return INSTANCE;
+    }
+
+    private static class NoteKey {
+        private final Note note;
+
+        private NoteKey(final Note note) {
+            this.note = note;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(note);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return (obj instanceof NoteKey) && ((NoteKey) obj).note == note;
+        }
+    }
+
+    private static class CachedText {
+        // either the content the text was extracted from...
+        private final String content;
+        // ... or the fingerprint of the file
+        private final long fileSize;
+        private final long fileModified;
+        private final String text;
+
+        private CachedText(final String content, final long fileSize, final long fileModified, final String text) {
+            this.content = content;
+            this.fileSize = fileSize;
+            this.fileModified = fileModified;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Text of the note for the given content - from cache if the content is the same as last time.
+     *
+     * @param note the note the content belongs to
+     * @param content current content of the note
+     * @return the extracted text
+     */
+    public String getText(final Note note, final String content) {
+        final NoteKey key = new NoteKey(note);
+        synchronized (textCache) {
+            final CachedText cached = textCache.get(key);
+            // strings are immutable - same instance, same text
+            if (cached != null && cached.content == content) {
+                return cached.text;
+            }
+        }
+
+        final String text = extractText(content);
+        synchronized (textCache) {
+            textCache.put(key, new CachedText(content, -1, -1, text));
+        }
+        return text;
+    }
+
+    /**
+     * Cached text of a note that has been read from file - if the file hasn't changed since.
+     *
+     * @param note the note the file belongs to
+     * @param fileSize current size of the file
+     * @param fileModified current last modified time of the file
+     * @return the cached text or null
+     */
+    public String getFileText(final Note note, final long fileSize, final long fileModified) {
+        synchronized (textCache) {
+            final CachedText cached = textCache.get(new NoteKey(note));
+            if (cached != null && cached.content == null && cached.fileSize == fileSize && cached.fileModified == fileModified) {
+                return cached.text;
+            }
+        }
+
+        return null;
+    }
+
+    public String putFileText(final Note note, final long fileSize, final long fileModified, final String content) {
+        final String text = extractText(content);
+        synchronized (textCache) {
+            textCache.put(new NoteKey(note), new CachedText(null, fileSize, fileModified, text));
+        }
+        return text;
+    }
+
+    public void remove(final Note note) {
+        synchronized (textCache) {
+            textCache.remove(new NoteKey(note));
+        }
+    }
+
+    public void clear() {
+        synchronized (textCache) {
+            textCache.clear();
+        }
+    }
+
+    /**
+     * Text of html content: without tags, comments & embedded images and with entities unescaped.
+     *
+     * @param content html content
+     * @return the text
+     */
+    public static String extractText(final String content) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+        if (content.indexOf('<') == -1) {
+            return HtmlEscape.unescapeHtml(content);
+        }
+
+        final StringBuilder result = new StringBuilder(content.length() / 2);
+        final int length = content.length();
+        int pos = 0;
+        while (pos < length) {
+            final int tagStart = content.indexOf('<', pos);
+            if (tagStart == -1) {
+                result.append(content, pos, length);
+                break;
+            }
+            result.append(content, pos, tagStart);
+
+            if (content.startsWith(COMMENT_START, tagStart)) {
+                final int commentEnd = content.indexOf(COMMENT_END, tagStart + COMMENT_START.length());
+                pos = (commentEnd == -1) ? length : commentEnd + COMMENT_END.length();
+                continue;
+            }
+
+            if (tagStart + 1 >= length || !isTagStart(content.charAt(tagStart + 1))) {
+                // a single '<' in text
+                result.append('<');
+                pos = tagStart + 1;
+                continue;
+            }
+
+            final int tagEnd = findTagEnd(content, tagStart + 1);
+            final String tagName = getTagName(content, tagStart + 1);
+            if (isOneOf(tagName, BLOCK_TAGS)) {
+                result.append('\n');
+            }
+            pos = tagEnd;
+
+            if (content.charAt(tagStart + 1) != '/' && isOneOf(tagName, SKIP_CONTENT_TAGS)) {
+                final int contentEnd = content.indexOf("</" + tagName, pos);
+                pos = (contentEnd == -1) ? length : findTagEnd(content, contentEnd + 1);
+            }
+        }
+
+        return HtmlEscape.unescapeHtml(result.toString());
+    }
+
+    /**
+     * Content without the payload of embedded images - for anything that needs to look at the markup.
+     *
+     * @param content html content
+     * @return the content with the base64 data following ";base64," removed
+     */
+    public static String stripImageData(final String content) {
+        if (content == null) {
+            return "";
+        }
+
+        int dataStart = content.indexOf(BASE64_START);
+        if (dataStart == -1) {
+            return content;
+        }
+
+        final StringBuilder result = new StringBuilder(content.length());
+        int pos = 0;
+        while (dataStart > -1) {
+            dataStart += BASE64_START.length();
+            result.append(content, pos, dataStart);
+
+            pos = dataStart;
+            while (pos < content.length() && isImageDataChar(content.charAt(pos))) {
+                pos++;
+            }
+            dataStart = content.indexOf(BASE64_START, pos);
+        }
+        result.append(content, pos, content.length());
+
+        return result.toString();
+    }
+
+    // base64 alphabet & line breaks of mime encoding - anything else ends the image data
+    protected static boolean isImageDataChar(final char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || 
+                c == '+' || c == '/' || c == '=' || c == '\r' || c == '\n';
+    }
+
+    /**
+     * Parts of a search literal that are kept as they are by stripImageData() - wherever the literal is found.
+     * 
+     * Image data can only start after the "," of ";base64," - so the start of the literal and whatever
+     * follows a "," might be image data as long as it consists of base64 characters.
+     *
+     * @param literal the literal
+     * @return parts of the literal that are never stripped
+     */
+    public static List<String> getUnstrippedParts(final String literal) {
+        final List<String> result = new ArrayList<>();
+
+        final StringBuilder part = new StringBuilder();
+        boolean maybeData = true;
+        for (int i = 0; i < literal.length(); i++) {
+            final char c = literal.charAt(i);
+            if (maybeData && isImageDataChar(c)) {
+                // might be gone after stripping - so what comes before & after isn't adjacent
+                if (part.length() > 0) {
+                    result.add(part.toString());
+                    part.setLength(0);
+                }
+                continue;
+            }
+
+            maybeData = (c == ',');
+            part.append(c);
+        }
+        if (part.length() > 0) {
+            result.add(part.toString());
+        }
+
+        return result;
+    }
+
+    private static boolean isTagStart(final char c) {
+        return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+    }
+
+    // position after the closing '>' - attribute values (e.g. image data) are skipped as a whole
+    private static int findTagEnd(final String content, final int start) {
+        int pos = start;
+        final int length = content.length();
+        while (pos < length) {
+            final char c = content.charAt(pos);
+            if (c == '>') {
+                return pos + 1;
+            }
+            if (c == '"' || c == '\'') {
+                final int quoteEnd = content.indexOf(c, pos + 1);
+                if (quoteEnd == -1) {
+                    return length;
+                }
+                pos = quoteEnd + 1;
+            } else {
+                pos++;
+            }
+        }
+
+        return length;
+    }
+
+    private static String getTagName(final String content, final int start) {
+        int pos = start;
+        if (pos < content.length() && content.charAt(pos) == '/') {
+            pos++;
+        }
+        final int nameStart = pos;
+        while (pos < content.length() && Character.isLetterOrDigit(content.charAt(pos))) {
+            pos++;
+        }
+
+        return content.substring(nameStart, pos).toLowerCase();
+    }
+
+    private static boolean isOneOf(final String value, final String[] values) {
+        for (String test : values) {
+            if (test.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
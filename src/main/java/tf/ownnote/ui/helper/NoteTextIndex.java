@@ -0,0 +1,649 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import tf.ownnote.ui.notes.Note;
+
+/**
+ * In-memory inverted index over the text of all notes (= content without html tags).
+ *
+ * Words are runs of letters, digits and underscore - case sensitive as the search in files is.
+ * The text is extracted via NoteTextExtractor.
+ * Plain word queries are answered from the vocabulary, for other patterns the index only
+ * provides the candidate notes that need to be verified against their text.
+ *
+ * For searches in the html content (e.g. for checkboxes or note links) there is a second index
+ * of all trigrams of the content - without the payload of embedded images.
+ *
+ * Notes are stored by identity since equals() & hashCode() of Note change with name & group.
+ * 
+ * To be able to remove a note from the postings each note keeps the ids of its words & trigrams -
+ * sorted and delta / varint encoded, so mostly 1 - 2 bytes per entry. Ids of removed notes, words
+ * and trigrams are re-used.
+ *
+ * @author thomas
+ */
+public class NoteTextIndex {
+    private final static Pattern WORD_PATTERN = Pattern.compile("[\\p{L}\\p{N}_]+");
+    private final static int TRIGRAM = 3;
+
+    // word -> sorted ids of notes containing it
+    private final Terms<String> words = new Terms<>();
+    // trigram of the content -> sorted ids of notes containing it
+    private final Terms<Long> trigrams = new Terms<>();
+    private final Map<Note, Integer> docIds = new IdentityHashMap<>();
+    // id -> note with its words & trigrams, needed to remove a note from the postings
+    private final List<Doc> docs = new ArrayList<>();
+    private final Deque<Integer> freeDocIds = new ArrayDeque<>();
+
+    // notes removed while the index is being built - those must not be added by the builder
+    private final Set<Note> removedNotes = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // each (re-)build gets its own generation - an older builder stops as soon as it notices
+    private long generation = 0;
+    private volatile boolean ready = false;
+    private boolean building = false;
+
+    public NoteTextIndex() {
+        super();
+    }
+
+    private static class Doc {
+        private final Note note;
+        // encoded term ids
+        private final byte[] wordIds;
+        private final byte[] trigramIds;
+
+        private Doc(final Note note, final byte[] wordIds, final byte[] trigramIds) {
+            this.note = note;
+            this.wordIds = wordIds;
+            this.trigramIds = trigramIds;
+        }
+    }
+
+    // postings of all words or of all trigrams - each with an id to be referenced from the docs
+    private static class Terms<K> {
+        private final Map<K, Postings> postings = new HashMap<>();
+        private final List<Postings> termPostings = new ArrayList<>();
+        private final Deque<Integer> freeTermIds = new ArrayDeque<>();
+
+        private Postings get(final K key) {
+            return postings.get(key);
+        }
+
+        private Set<Map.Entry<K, Postings>> entrySet() {
+            return postings.entrySet();
+        }
+
+        private byte[] addDoc(final Collection<K> keys, final int docId) {
+            final int[] termIds = new int[keys.size()];
+            int i = 0;
+            for (K key : keys) {
+                Postings keyPostings = postings.get(key);
+                if (keyPostings == null) {
+                    final Integer freeId = freeTermIds.poll();
+                    final int termId = (freeId != null) ? freeId : termPostings.size();
+                    keyPostings = new Postings(key, termId);
+                    postings.put(key, keyPostings);
+                    if (freeId != null) {
+                        termPostings.set(termId, keyPostings);
+                    } else {
+                        termPostings.add(keyPostings);
+                    }
+                }
+                keyPostings.add(docId);
+                termIds[i++] = keyPostings.termId;
+            }
+
+            return encodeIds(termIds);
+        }
+
+        private void removeDoc(final byte[] encodedIds, final int docId) {
+            for (int termId : decodeIds(encodedIds)) {
+                final Postings keyPostings = termPostings.get(termId);
+                keyPostings.remove(docId);
+                if (keyPostings.isEmpty()) {
+                    postings.remove(keyPostings.key);
+                    termPostings.set(termId, null);
+                    freeTermIds.push(termId);
+                }
+            }
+        }
+
+        private void clear() {
+            postings.clear();
+            termPostings.clear();
+            freeTermIds.clear();
+        }
+    }
+
+    // sorted list of note ids
+    private static class Postings {
+        private final Object key;
+        private final int termId;
+        private int[] ids = new int[4];
+        private int size = 0;
+
+        private Postings() {
+            this(null, -1);
+        }
+
+        private Postings(final Object key, final int termId) {
+            this.key = key;
+            this.termId = termId;
+        }
+
+        private void add(final int id) {
+            // new notes mostly get a higher id than all existing ones - unless a freed id is re-used
+            int pos = size;
+            if (size > 0 && ids[size-1] >= id) {
+                pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                pos = -pos - 1;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos+1, size-pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        private void remove(final int id) {
+            final int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos+1, ids, pos, size-pos-1);
+                size--;
+            }
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        // both lists are sorted - so we can walk along them in parallel
+        private Postings retainAll(final Postings other) {
+            final Postings result = new Postings();
+            result.ids = new int[Math.max(1, Math.min(size, other.size))];
+
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    result.ids[result.size++] = ids[i];
+                    i++;
+                    j++;
+                }
+            }
+
+            return result;
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Wait for a running build to complete.
+     *
+     * @return true if the index is ready to be used
+     */
+    public synchronized boolean awaitReady() {
+        while (building && !ready) {
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return ready;
+    }
+
+    public synchronized void clear() {
+        generation++;
+        ready = false;
+        building = false;
+        notifyAll();
+
+        words.clear();
+        trigrams.clear();
+        docIds.clear();
+        docs.clear();
+        freeDocIds.clear();
+        removedNotes.clear();
+    }
+
+    /**
+     * Build index for all given notes on a background thread.
+     *
+     * Until done, isReady() returns false. Updates & removals during the build are kept.
+     *
+     * @param notes notes to be indexed
+     * @param contentReader function to get the (saved) content of a note
+     */
+    public void rebuild(final Collection<Note> notes, final Function<Note, String> contentReader) {
+        final long buildGeneration;
+        synchronized (this) {
+            clear();
+            buildGeneration = generation;
+            building = true;
+        }
+
+        final List<Note> buildNotes = new ArrayList<>(notes);
+        final Thread builder = new Thread(() -> {
+            build(buildNotes, contentReader, buildGeneration);
+        }, "NoteTextIndex");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Build index for all given notes in the calling thread.
+     *
+     * @param notes notes to be indexed
+     * @param contentReader function to get the (saved) content of a note
+     */
+    public void build(final Collection<Note> notes, final Function<Note, String> contentReader) {
+        final long buildGeneration;
+        synchronized (this) {
+            clear();
+            buildGeneration = generation;
+            building = true;
+        }
+
+        build(notes, contentReader, buildGeneration);
+    }
+
+    private void build(final Collection<Note> notes, final Function<Note, String> contentReader, final long buildGeneration) {
+        // reading & tokenizing can be done in parallel, only adding to the index is synchronized
+        notes.parallelStream().forEach((note) -> {
+            buildNote(note, contentReader, buildGeneration);
+        });
+
+        synchronized (this) {
+            if (generation == buildGeneration) {
+                removedNotes.clear();
+                ready = true;
+                building = false;
+                notifyAll();
+            }
+        }
+    }
+
+    private void buildNote(final Note note, final Function<Note, String> contentReader, final long buildGeneration) {
+        synchronized (this) {
+            if (generation != buildGeneration) {
+                // someone has started over
+                return;
+            }
+            if (docIds.containsKey(note) || removedNotes.contains(note)) {
+                // already up to date or gone
+                return;
+            }
+        }
+
+        String content = null;
+        try {
+            content = contentReader.apply(note);
+        } catch (Exception ex) {
+            Logger.getLogger(NoteTextIndex.class.getName()).log(Level.SEVERE, null, ex);
+        }
+        final Set<String> noteWords = getWords(content);
+        final List<Long> noteTrigrams = getTrigramList(content);
+
+        synchronized (this) {
+            if (generation == buildGeneration && !docIds.containsKey(note) && !removedNotes.contains(note)) {
+                addDoc(note, noteWords, noteTrigrams);
+            }
+        }
+    }
+
+    public void updateNote(final Note note, final String content) {
+        assert note != null;
+
+        final Set<String> noteWords = getWords(content);
+        final List<Long> noteTrigrams = getTrigramList(content);
+        synchronized (this) {
+            removeDoc(note);
+            removedNotes.remove(note);
+            addDoc(note, noteWords, noteTrigrams);
+        }
+    }
+
+    public synchronized void removeNote(final Note note) {
+        assert note != null;
+
+        removeDoc(note);
+        if (!ready) {
+            removedNotes.add(note);
+        }
+    }
+
+    public synchronized boolean containsNote(final Note note) {
+        return docIds.containsKey(note);
+    }
+
+    private void addDoc(final Note note, final Collection<String> noteWords, final Collection<Long> noteTrigrams) {
+        final Integer freeId = freeDocIds.poll();
+        final int docId = (freeId != null) ? freeId : docs.size();
+
+        final Doc doc = new Doc(note, words.addDoc(noteWords, docId), trigrams.addDoc(noteTrigrams, docId));
+        if (freeId != null) {
+            docs.set(docId, doc);
+        } else {
+            docs.add(doc);
+        }
+        docIds.put(note, docId);
+    }
+
+    private void removeDoc(final Note note) {
+        final Integer docId = docIds.remove(note);
+        if (docId == null) {
+            return;
+        }
+
+        final Doc doc = docs.set(docId, null);
+        words.removeDoc(doc.wordIds, docId);
+        trigrams.removeDoc(doc.trigramIds, docId);
+        freeDocIds.push(docId);
+    }
+
+    protected synchronized int getDocCount() {
+        return docs.size();
+    }
+
+    // sorted ids as varints of the differences - ids of a note are mostly close to each other
+    protected static byte[] encodeIds(final int[] ids) {
+        Arrays.sort(ids);
+
+        byte[] result = new byte[ids.length + 4];
+        int length = 0;
+        int last = 0;
+        for (int id : ids) {
+            int delta = id - last;
+            last = id;
+            if (length + 5 > result.length) {
+                result = Arrays.copyOf(result, result.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                result[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            result[length++] = (byte) delta;
+        }
+
+        return Arrays.copyOf(result, length);
+    }
+
+    protected static int[] decodeIds(final byte[] encoded) {
+        int[] result = new int[encoded.length];
+        int count = 0;
+        int last = 0;
+        int pos = 0;
+        while (pos < encoded.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encoded[pos++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            last += delta;
+            result[count++] = last;
+        }
+
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * All notes with a word that contains the given word - same as a find() of the word in the note text.
+     *
+     * @param word the word to search for
+     * @return set of notes containing the word
+     */
+    public synchronized Set<Note> getNotesWithWord(final String word) {
+        assert isWord(word);
+
+        final Set<Note> result = new HashSet<>();
+        // vocabulary is much smaller than the text of all notes
+        for (Map.Entry<String, Postings> entry : words.entrySet()) {
+            if (entry.getKey().contains(word)) {
+                addNotes(entry.getValue(), result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Notes that might match the given regular expression.
+     *
+     * Words that are required by the pattern are looked up in the index, the resulting
+     * notes still need to be verified against the pattern on the text of the note.
+     *
+     * @param regex the pattern to search for
+     * @return candidate notes OR null if the pattern can't be narrowed down by the index
+     */
+    public synchronized Set<Note> getCandidateNotes(final String regex) {
+        final List<String> requiredWords = getRequiredWords(regex);
+        if (requiredWords.isEmpty()) {
+            return null;
+        }
+
+        Set<Note> result = null;
+        for (String word : requiredWords) {
+            final Set<Note> wordNotes = getNotesWithWord(word);
+            if (result == null) {
+                result = Collections.newSetFromMap(new IdentityHashMap<>());
+                result.addAll(wordNotes);
+            } else {
+                result.retainAll(wordNotes);
+            }
+
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        return new HashSet<>(result);
+    }
+
+    /**
+     * Notes whose html content might match the given regular expression.
+     *
+     * Trigrams of the literals that are required by the pattern are looked up in the index,
+     * the resulting notes still need to be verified against the pattern on the content of the note.
+     *
+     * @param regex the pattern to search for
+     * Image data isn't part of the index: literals that might start in or span image data also match
+     * any note with images that contains the remainder of the literal.
+     *
+     * @param regex the pattern to search for
+     * @return candidate notes OR null if the pattern can't be narrowed down by the index
+     */
+    public synchronized Set<Note> getContentCandidateNotes(final String regex) {
+        Set<Note> result = null;
+        for (String literal : RegexLiterals.getRequiredLiterals(regex)) {
+            final Set<Note> literalNotes = getNotesWithTrigrams(Arrays.asList(literal));
+            if (literalNotes == null) {
+                continue;
+            }
+
+            // TFE, 20261017: the index doesn't know the image data - only use what can't be part of it
+            final List<String> parts = NoteTextExtractor.getUnstrippedParts(literal);
+            if (!parts.equals(Arrays.asList(literal))) {
+                final List<String> imageParts = new ArrayList<>(parts);
+                imageParts.add(NoteTextExtractor.BASE64_START);
+                literalNotes.addAll(getNotesWithTrigrams(imageParts));
+            }
+
+            if (result == null) {
+                result = literalNotes;
+            } else {
+                result.retainAll(literalNotes);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    // notes containing all trigrams of the parts OR null if there are none
+    private Set<Note> getNotesWithTrigrams(final Collection<String> parts) {
+        final Set<Long> requiredTrigrams = new HashSet<>();
+        for (String part : parts) {
+            for (long trigram : getTrigrams(part)) {
+                requiredTrigrams.add(trigram);
+            }
+        }
+        if (requiredTrigrams.isEmpty()) {
+            return null;
+        }
+
+        Postings result = null;
+        for (long trigram : requiredTrigrams) {
+            final Postings trigramNotes = trigrams.get(trigram);
+            if (trigramNotes == null) {
+                return new HashSet<>();
+            }
+
+            result = (result == null) ? trigramNotes : result.retainAll(trigramNotes);
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+
+        final Set<Note> notes = new HashSet<>();
+        addNotes(result, notes);
+        return notes;
+    }
+
+    private void addNotes(final Postings notePostings, final Set<Note> notes) {
+        for (int i = 0; i < notePostings.size; i++) {
+            final Doc doc = docs.get(notePostings.ids[i]);
+            if (doc != null) {
+                notes.add(doc.note);
+            }
+        }
+    }
+
+    public static boolean isWord(final String searchText) {
+        return searchText != null && WORD_PATTERN.matcher(searchText).matches();
+    }
+
+    // words that any match of the pattern must contain - might be only part of a word in the text
+    protected static List<String> getRequiredWords(final String regex) {
+        final List<String> result = new ArrayList<>();
+
+        for (String literal : RegexLiterals.getRequiredLiterals(regex)) {
+            final Matcher matcher = WORD_PATTERN.matcher(literal);
+            while (matcher.find()) {
+                result.add(matcher.group());
+            }
+        }
+
+        return result;
+    }
+
+    private static Set<String> getWords(final String content) {
+        final Set<String> result = new LinkedHashSet<>();
+
+        final Matcher matcher = WORD_PATTERN.matcher(NoteTextExtractor.extractText(content));
+        while (matcher.find()) {
+            result.add(matcher.group());
+        }
+
+        return result;
+    }
+
+    private static List<Long> getTrigramList(final String content) {
+        final long[] contentTrigrams = getTrigrams(content);
+        final List<Long> result = new ArrayList<>(contentTrigrams.length);
+        for (long trigram : contentTrigrams) {
+            result.add(trigram);
+        }
+
+        return result;
+    }
+
+    // sorted & unique trigrams of the content - without the payload of embedded images
+    private static long[] getTrigrams(final String content) {
+        if (content == null || content.length() < TRIGRAM) {
+            return new long[0];
+        }
+
+        final String markup = NoteTextExtractor.stripImageData(content);
+        final int count = markup.length() - TRIGRAM + 1;
+        if (count <= 0) {
+            return new long[0];
+        }
+
+        final long[] trigrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            trigrams[i] = ((long) markup.charAt(i) << 32) | ((long) markup.charAt(i+1) << 16) | markup.charAt(i+2);
+        }
+        Arrays.sort(trigrams);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i-1]) {
+                trigrams[unique++] = trigrams[i];
+            }
+        }
+
+        return Arrays.copyOf(trigrams, unique);
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Extract the literal strings that any match of a regular expression must contain.
+ *
+ * E.g. "<a href=['\"]file:///(.*)htm" requires "<a href=", "file:///" and "htm".
+ *
+ * This is conservative: alternatives, inline flags and exotic escapes result in
+ * an empty list - meaning that the pattern can't be narrowed down.
+ *
+ * @author thomas
+ */
+public class RegexLiterals {
+    private final static String SPECIAL_CHARS = "\\[]().^$?*+{}|";
+    // escapes that stand for a literal char we don't want to decode here
+    private final static String UNSUPPORTED_ESCAPES = "xuc0QEkN";
+
+    private RegexLiterals() {
+        super();
+    }
+
+    public static List<String> getRequiredLiterals(final String regex) {
+        final List<String> result = new ArrayList<>();
+        if (regex == null || regex.isEmpty()) {
+            return result;
+        }
+
+        // literals found before each open group - to drop the group content if its optional
+        final Deque<Integer> groupStarts = new ArrayDeque<>();
+        final StringBuilder literal = new StringBuilder();
+
+        int pos = 0;
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+
+            if (SPECIAL_CHARS.indexOf(c) == -1) {
+                literal.append(c);
+                pos++;
+                continue;
+            }
+
+            switch (c) {
+                case '\\':
+                    if (pos + 1 >= regex.length()) {
+                        return new ArrayList<>();
+                    }
+                    final char escaped = regex.charAt(pos + 1);
+                    if (!Character.isLetterOrDigit(escaped)) {
+                        // escaped special char
+                        literal.append(escaped);
+                        pos += 2;
+                    } else if (UNSUPPORTED_ESCAPES.indexOf(escaped) > -1) {
+                        return new ArrayList<>();
+                    } else {
+                        // \d, \s, \w, \b, \p{...}, ... - any char or no char at all
+                        addLiteral(result, literal);
+                        pos += 2;
+                        if ((escaped == 'p' || escaped == 'P') && pos < regex.length() && regex.charAt(pos) == '{') {
+                            pos = regex.indexOf('}', pos) + 1;
+                            if (pos == 0) {
+                                return new ArrayList<>();
+                            }
+                        }
+                    }
+                    break;
+                case '[':
+                    addLiteral(result, literal);
+                    pos = skipCharacterClass(regex, pos);
+                    if (pos == -1) {
+                        return new ArrayList<>();
+                    }
+                    break;
+                case '(':
+                    if (pos + 1 < regex.length() && regex.charAt(pos + 1) == '?') {
+                        // flags, lookarounds, named groups - not worth the effort
+                        return new ArrayList<>();
+                    }
+                    addLiteral(result, literal);
+                    groupStarts.push(result.size());
+                    pos++;
+                    break;
+                case ')':
+                    addLiteral(result, literal);
+                    if (groupStarts.isEmpty()) {
+                        return new ArrayList<>();
+                    }
+                    final int groupStart = groupStarts.pop();
+                    pos++;
+                    if (isOptional(regex, pos)) {
+                        // group content might not be there at all
+                        while (result.size() > groupStart) {
+                            result.remove(result.size() - 1);
+                        }
+                    }
+                    break;
+                case '?':
+                case '*':
+                    // previous char might not be there at all
+                    if (literal.length() > 0) {
+                        literal.setLength(literal.length() - 1);
+                    }
+                    addLiteral(result, literal);
+                    pos++;
+                    break;
+                case '{':
+                    if (isOptional(regex, pos) && literal.length() > 0) {
+                        literal.setLength(literal.length() - 1);
+                    }
+                    addLiteral(result, literal);
+                    pos = regex.indexOf('}', pos) + 1;
+                    if (pos == 0) {
+                        return new ArrayList<>();
+                    }
+                    break;
+                case '|':
+                    // alternatives: nothing is required for sure
+                    return new ArrayList<>();
+                default:
+                    // . ^ $ + }
+                    addLiteral(result, literal);
+                    pos++;
+                    break;
+            }
+        }
+        addLiteral(result, literal);
+
+        return result;
+    }
+
+    private static void addLiteral(final List<String> literals, final StringBuilder literal) {
+        if (literal.length() > 0) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+        }
+    }
+
+    // is whatever is before pos optional due to a quantifier at pos?
+    private static boolean isOptional(final String regex, final int pos) {
+        if (pos >= regex.length()) {
+            return false;
+        }
+
+        final char c = regex.charAt(pos);
+        return (c == '?' || c == '*' || regex.startsWith("{0", pos) || regex.startsWith("{,", pos));
+    }
+
+    // position after the closing ] of a character class or -1 if there is none
+    private static int skipCharacterClass(final String regex, final int start) {
+        int pos = start + 1;
+        if (pos < regex.length() && regex.charAt(pos) == '^') {
+            pos++;
+        }
+        // ] as first char is part of the class
+        if (pos < regex.length() && regex.charAt(pos) == ']') {
+            pos++;
+        }
+
+        int depth = 1;
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+
+        return -1;
+    }
+}
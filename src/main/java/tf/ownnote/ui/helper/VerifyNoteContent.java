@@ -25,12 +25,8 @@
  */
 package tf.ownnote.ui.helper;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.function.BiFunction;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import tf.ownnote.ui.notes.Note;
 
@@ -42,21 +38,20 @@ import tf.ownnote.ui.notes.Note;
 public class VerifyNoteContent {
     private final static VerifyNoteContent INSTANCE = new VerifyNoteContent();
     
-    private enum ContentIssues {
-        REPEATED_METADATA("Repeated Metadata", "--><!--", VerifyNoteContent.getInstance()::findMatches),
-        ADDITIONAL_CHECKBOX_ATTRIBUTES("Additional checkbox attributes", "<input[^>]*(?<!type|checked)=\"([^\"]*)\"[^>]*>", VerifyNoteContent.getInstance()::findMatches),
-        DUPLICATE_METADATA_ID("Duplicate Metadata Id", "<!-- id=\"([^\"]*)\"", VerifyNoteContent.getInstance()::findDuplicateValues);
+    // TFE, 20261017: NoteContentAnalyzer finds the issues in its single pass - patterns describe what it looks for
+    public enum ContentIssues {
+        REPEATED_METADATA("Repeated Metadata", "--><!--"),
+        ADDITIONAL_CHECKBOX_ATTRIBUTES("Additional checkbox attributes", "<input[^>]*(?<!type|checked)=\"([^\"]*)\"[^>]*>"),
+        DUPLICATE_METADATA_ID("Duplicate Metadata Id", "<!-- id=\"([^\"]*)\"");
         
         private final String issueName;
         private final String issuePatternString;
         private final Pattern issuePattern;
-        private final BiFunction<ContentIssues, String, Map<Integer, String>> issueChecker;
         
-        private ContentIssues(final String name, final String pattern, final BiFunction<ContentIssues, String, Map<Integer, String>> checker) {
+        private ContentIssues(final String name, final String pattern) {
             issueName = name;
             issuePatternString = pattern;
             issuePattern = Pattern.compile(issuePatternString);
-            issueChecker = checker;
         }
         
         @Override
@@ -76,8 +71,14 @@ public class VerifyNoteContent {
             return issuePattern;
         }
         
-        public boolean checkContent(final String content) {
-            final Map<Integer, String> result =  issueChecker.apply(this, content);
+        public boolean checkContent(final NoteContentAnalysis analysis) {
+            final Map<Integer, String> result = new HashMap<>();
+            for (NoteContentAnalysis.Issue issue : analysis.getIssues()) {
+                if (this.equals(issue.getIssue())) {
+                    result.put(issue.getTextPos(), issue.getText());
+                }
+            }
+
             if (!result.isEmpty()) {
                 String errorString = "";
                 final Note checkNote = VerifyNoteContent.getInstance().getCheckNote();
@@ -126,45 +127,16 @@ public class VerifyNoteContent {
     }
     
     private boolean doVerify(final String content) {
-        // go through all pattern and check for occurence
+        // TFE, 20261017: one pass for all issues - and shared with TaskManager & LinkManager
+        final NoteContentAnalysis analysis = NoteContentAnalyzer.getInstance().getAnalysis(content);
+
+        // go through all issues and check for occurence
         for (ContentIssues issue: ContentIssues.values()) {
-            if (!issue.checkContent(content)) {
+            if (!issue.checkContent(analysis)) {
                 return false;
             }
         }
         
         return true;
     }
-    
-    private Map<Integer, String> findMatches(final ContentIssues issue, final String content) {
-        final Map<Integer, String> result = new HashMap<>();
-        
-        // if we find the pattern, we're doomed
-        final Matcher matcher = issue.getIssuePattern().matcher(content);
-        while (matcher.find()) {
-            result.put(matcher.start(), matcher.group());
-        }
-        
-        return result;
-    }
-    
-    private Map<Integer, String> findDuplicateValues(final ContentIssues issue, final String content) {
-        final Map<Integer, String> result = new HashMap<>();
-        
-        // if we find the variable more than once, we're doomed
-        final List<String> patternValues = new ArrayList<>();
-        final Matcher matcher = issue.getIssuePattern().matcher(content);
-        while (matcher.find()) {
-            // use 0 or first group - if any
-            final int groupPos = Math.min(matcher.groupCount(), 1);
-            final int checkPos = matcher.start(groupPos);
-            final String checkString = matcher.group(groupPos);
-            if (patternValues.contains(checkString)) {
-                result.put(checkPos, checkString);
-            }
-            patternValues.add(checkString);
-        }
-        
-        return result;
-    }
 }
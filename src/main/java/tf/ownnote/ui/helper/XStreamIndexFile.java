@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.converters.reflection.PureJavaReflectionProvider;
+import com.thoughtworks.xstream.io.xml.DomDriver;
+import com.thoughtworks.xstream.io.xml.PrettyPrintWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.FileUtils;
+import tf.helper.general.ObjectsHelper;
+
+/**
+ * Versioned xml file with a list of entries under MetaData in the notes path - used for our caches.
+ * 
+ * Files with a different version are ignored - the caller simply has to rebuild the cache then.
+ * 
+ * @author thomas
+ * @param <T> type of the entries
+ */
+public class XStreamIndexFile<T> {
+    private final static String INDEX_DIR = File.separator + "MetaData";
+    
+    private final String indexFile;
+    private final int version;
+    private final Class<?>[] types;
+    private final Consumer<XStream> setup;
+    
+    // what is actually written to the file
+    public static class IndexContent {
+        private int version;
+        private List<Object> entries;
+        
+        public IndexContent() {
+            super();
+        }
+    }
+
+    /**
+     * @param fileName name of the file in the MetaData directory
+     * @param version version of the file content - increase on any incompatible change of the entries
+     * @param types all types to be allowed for the entries
+     * @param setup further setup of xstream, e.g. aliases for the entries
+     */
+    public XStreamIndexFile(final String fileName, final int version, final Class<?>[] types, final Consumer<XStream> setup) {
+        super();
+        
+        indexFile = INDEX_DIR + File.separator + fileName;
+        this.version = version;
+        this.types = types;
+        this.setup = setup;
+    }
+    
+    private XStream getXStream() {
+        final XStream xstream = new XStream(new PureJavaReflectionProvider(), new DomDriver("UTF-8"));
+        xstream.setMode(XStream.NO_REFERENCES);
+        xstream.allowTypes(new Class[] {IndexContent.class});
+        xstream.allowTypes(types);
+        
+        xstream.alias("index", IndexContent.class);
+        xstream.useAttributeFor(IndexContent.class, "version");
+        xstream.addImplicitCollection(IndexContent.class, "entries");
+        setup.accept(xstream);
+        
+        return xstream;
+    }
+    
+    /**
+     * Load the entries from the file.
+     * 
+     * @param notesPath the notes path
+     * @return the entries - empty if the file doesn't exist, can't be read or has a different version
+     */
+    public List<T> load(final String notesPath) {
+        final List<T> result = new ArrayList<>();
+        
+        final String fileName = notesPath + indexFile;
+        final File file = new File(fileName);
+        if (!file.exists() || file.isDirectory() || !file.canRead()) {
+            return result;
+        }
+        
+        try (
+            BufferedInputStream stdin = new BufferedInputStream(new FileInputStream(fileName));
+            Reader reader = new InputStreamReader(stdin, StandardCharsets.UTF_8);
+        ) {
+            final Object content = getXStream().fromXML(reader);
+            if (content instanceof IndexContent && ((IndexContent) content).version == version) {
+                final List<T> entries = ObjectsHelper.uncheckedCast(((IndexContent) content).entries);
+                // xstream leaves empty lists as null
+                if (entries != null) {
+                    result.addAll(entries);
+                }
+            } else {
+                Logger.getLogger(XStreamIndexFile.class.getName()).log(Level.INFO, "Ignoring outdated file {0}", fileName);
+            }
+        } catch (Exception ex) {
+            // only a cache - if we can't read it the caller has to rebuild it
+            Logger.getLogger(XStreamIndexFile.class.getName()).log(Level.SEVERE, null, ex);
+            result.clear();
+        }
+        
+        return result;
+    }
+    
+    /**
+     * Save the entries to the file.
+     * 
+     * @param notesPath the notes path
+     * @param entries the entries
+     */
+    public void save(final String notesPath, final Collection<T> entries) {
+        if (notesPath == null) {
+            return;
+        }
+        
+        try {
+            FileUtils.forceMkdir(new File(notesPath + INDEX_DIR));
+        } catch (IOException ex) {
+            Logger.getLogger(XStreamIndexFile.class.getName()).log(Level.SEVERE, null, ex);
+            return;
+        }
+        final String fileName = notesPath + indexFile;
+        final File file = new File(fileName);
+        if (file.exists() && (file.isDirectory() || !file.canWrite())) {
+            return;
+        }
+        
+        final IndexContent content = new IndexContent();
+        content.version = version;
+        content.entries = new ArrayList<>(entries);
+        
+        try (
+            BufferedOutputStream stdout = new BufferedOutputStream(new FileOutputStream(fileName));
+            Writer writer = new OutputStreamWriter(stdout, StandardCharsets.UTF_8);
+        ) {
+            PrettyPrintWriter printer = new PrettyPrintWriter(writer, new char[]{'\t'});
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + System.getProperty("line.separator"));
+        
+            getXStream().marshal(content, printer);
+        } catch (IOException ex) {
+            Logger.getLogger(XStreamIndexFile.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+}
@@ -28,20 +28,22 @@ package tf.ownnote.ui.links;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.BooleanSupplier;
 import javafx.application.Platform;
 import tf.ownnote.ui.editor.HTMLEditor;
+import tf.ownnote.ui.helper.ContentChange;
 import tf.ownnote.ui.helper.FileContentChangeType;
 import tf.ownnote.ui.helper.FileManager;
 import tf.ownnote.ui.helper.IFileChangeSubscriber;
 import tf.ownnote.ui.helper.IFileContentChangeSubscriber;
+import tf.ownnote.ui.helper.NoteContentAnalysis;
+import tf.ownnote.ui.helper.NoteContentAnalyzer;
 import tf.ownnote.ui.main.OwnNoteEditor;
 import tf.ownnote.ui.notes.INoteCRMDS;
 import tf.ownnote.ui.notes.Note;
@@ -58,17 +60,25 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
     // "<a href='" + link + "' data-note='yes' target='dummy'>"
     private final static String ANY_LINK_PREFIX = "<a href=['\"]" + HTMLEditor.NOTE_HTML_LINK_TYPE;
     private final static String ANY_LINK_LINK = "(.*)htm";
-    private final static String ANY_LINK_POSTFIX = "['\"] target=['\"]dummy['\"] data-note=['\"]yes['\"]>";
+    public final static String ANY_LINK_POSTFIX = "['\"] target=['\"]dummy['\"] data-note=['\"]yes['\"]>";
     private final static String ANY_LINK = ANY_LINK_PREFIX + ANY_LINK_LINK + ANY_LINK_POSTFIX;
-    private final static Pattern LINK_PATTERN = Pattern.compile(ANY_LINK);
-    private final static int LINK_OFFSET = ANY_LINK_PREFIX.length() - 3;
+    private final static String LINK_START = "<a href=";
+    private final static String LINK_END = "</a>";
 
     private boolean inFileChange = false;
     private boolean noteLinksInitialized = false;
     
     // keep track of all links here: to speed up things and for further functions (link-graph, ...)
-    private final Map<Note, Set<Note>> linkList = new HashMap<>();
-    private final Map<Note, Set<Note>> backlinkList = new HashMap<>();
+    // TFE, 20261017: notes are identified by identity since equals() & hashCode() of Note change with name & group
+    private final Map<Note, Set<Note>> linkList = new IdentityHashMap<>();
+    private final Map<Note, Set<Note>> backlinkList = new IdentityHashMap<>();
+    // TFE, 20261017: where are the links in the content of the linking notes - to rewrite only those on rename / move
+    private final Map<Note, LinkPositions> linkPositions = new IdentityHashMap<>();
+    
+    // TFE, 20261017: sets of linked notes need to use identity as well
+    private static Set<Note> newNoteSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
     
     // callback to OwnNoteEditor
     private OwnNoteEditor myEditor;
@@ -76,6 +86,17 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
     private LinkManager() {
         super();
     }
+    
+    private static class LinkPositions {
+        // positions are only valid for the content they have been found in
+        private final String content;
+        private final List<Integer> positions;
+        
+        private LinkPositions(final String content, final List<Integer> positions) {
+            this.content = content;
+            this.positions = positions;
+        }
+    }
 
     public static LinkManager getInstance() {
         return INSTANCE;
@@ -92,6 +113,7 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
     public void resetLinkLists() {
         linkList.clear();
         backlinkList.clear();
+        linkPositions.clear();
         noteLinksInitialized = false;
     }
     
@@ -121,6 +143,7 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
         final Set<Note> notesWithLinks = FileManager.getInstance().getNotesWithText(ANY_LINK);
         
         linkList.clear();
+        linkPositions.clear();
         for (Note note : notesWithLinks) {
             initNoteLinks(note, FileManager.getInstance().readNote(note, false).getNoteFileContent());
         }
@@ -138,103 +161,109 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
     private void initBacklinks() {
         backlinkList.clear();
 
-        // 1) get all notes that are linked to another note
-        // = keyset for backlink list
-        final Set<Note> linkingNotes = new HashSet<>();
-        linkList.values().stream().forEach((t) -> {
-            linkingNotes.addAll(t);
-        });
+        // TFE, 20261017: one pass over all links instead of checking every linking note against every note
+        for (Map.Entry<Note, Set<Note>> entry : linkList.entrySet()) {
+            for (Note linkedNote : entry.getValue()) {
+                backlinkList.computeIfAbsent(linkedNote, (t) -> newNoteSet()).add(entry.getKey());
+            }
+        }
         
-        // 2) backlink: all keys that have links to the given note
-        for (Note note : linkingNotes) {
-            final Set<Note> backlinks = new HashSet<>();
+        for (Map.Entry<Note, Set<Note>> entry : backlinkList.entrySet()) {
+            entry.getKey().getMetaData().setLinkingNotes(entry.getValue());
+        }
 
-            for (Note keyNote : linkList.keySet()) {
-                if (linkList.get(keyNote) == null) {
-                    System.err.println("That shoudn't have happened!");
-                } else {
-                    if (linkList.get(keyNote).contains(note)) {
-                        backlinks.add(keyNote);
+        // and now find all other notes...
+        for (Note note : FileManager.getInstance().getNotesList()) {
+            if (!backlinkList.containsKey(note)) {
+                note.getMetaData().getLinkingNotes().clear();
+            }
+        }
+    }
+    
+    // TFE, 20261017: only update the backlinks of the notes that have been added or removed as links
+    private void updateBacklinks(final Note note, final Set<Note> oldLinkedNotes, final Set<Note> newLinkedNotes) {
+        if (oldLinkedNotes != null) {
+            for (Note linkedNote : oldLinkedNotes) {
+                if (newLinkedNotes != null && newLinkedNotes.contains(linkedNote)) {
+                    continue;
+                }
+
+                final Set<Note> backlinks = backlinkList.get(linkedNote);
+                if (backlinks != null) {
+                    backlinks.remove(note);
+                    if (backlinks.isEmpty()) {
+                        backlinkList.remove(linkedNote);
                     }
                 }
+                linkedNote.getMetaData().getLinkingNotes().remove(note);
             }
-            
-            backlinkList.put(note, backlinks);
-            note.getMetaData().getLinkingNotes().addAll(backlinks);
         }
+        
+        if (newLinkedNotes != null) {
+            for (Note linkedNote : newLinkedNotes) {
+                if (oldLinkedNotes != null && oldLinkedNotes.contains(linkedNote)) {
+                    continue;
+                }
 
-        // and now find all other notes...
-        List<Note> notesWithoutBacklinks = FileManager.getInstance().getNotesList();
-        notesWithoutBacklinks.removeAll(backlinkList.keySet());
-        for (Note note : notesWithoutBacklinks) {
-            note.getMetaData().getLinkingNotes().clear();
+                backlinkList.computeIfAbsent(linkedNote, (t) -> newNoteSet()).add(note);
+                linkedNote.getMetaData().getLinkingNotes().add(note);
+            }
         }
     }
     
     private boolean initNoteLinks(final Note note, final String noteContent) {
-        final Set<Note> linkedNotes = linkedNotesForNoteAndContent(note, noteContent);
+        final NoteContentAnalysis analysis = NoteContentAnalyzer.getInstance().getAnalysis(noteContent);
+        final Set<Note> linkedNotes = linkedNotesForAnalysis(analysis);
 
         // TFE, 20231103: it could have been a false positive
-        note.getMetaData().setLinkedNotes(linkedNotes);
+        // TFE, 20261017: but don't bother listeners if nothing has changed
+        if (!linkedNotes.equals(note.getMetaData().getLinkedNotes())) {
+            note.getMetaData().setLinkedNotes(linkedNotes);
+        }
         
         Set<Note> prevLinkedNotes;
         if (!linkedNotes.isEmpty()){
             prevLinkedNotes = linkList.put(note, linkedNotes);
+            linkPositions.put(note, new LinkPositions(noteContent, analysis.getNoteLinkPositions()));
         } else {
             prevLinkedNotes = linkList.remove(note);
+            linkPositions.remove(note);
         }
 
-        return !linkedNotes.equals(prevLinkedNotes);
+        final boolean result = !linkedNotes.equals(prevLinkedNotes);
+        if (result && noteLinksInitialized) {
+            updateBacklinks(note, prevLinkedNotes, linkedNotes);
+        }
+        
+        return result;
     }
     
-    
     // noteContent as separate parm since it could be called from change within the editor before save
     protected Set<Note> linkedNotesForNoteAndContent(final Note note, final String noteContent) {
-        final Set<Note> result = new HashSet<>();
-
-        // iterate over all matches and read Notes
-        final List<Integer> textPossssss = findAllOccurences(noteContent, LINK_PATTERN);
-        for (int textPos : textPossssss) {
-            // note ref is directly after the ANY_LINK text AND ends with "."NOTE_EXT
-            textPos += LINK_OFFSET;
-            if (textPos + 1 + FileManager.NOTE_EXT.length() < noteContent.length()) {
-                final int linkEnd = noteContent.indexOf(FileManager.NOTE_EXT, textPos) - 1;
-                if (linkEnd > 0) {
-                    final String linkName = noteContent.substring(textPos, linkEnd) + "." + FileManager.NOTE_EXT;
-                    final Note linkedNote = FileManager.getInstance().getNote(linkName);
-                    if (linkedNote != null) {
-                        result.add(FileManager.getInstance().getNote(linkName));
-                    }
-                }
-            }
-        }
-        
-        return result;
+        // TFE, 20261017: links are found together with tasks & content issues in one pass
+        return linkedNotesForAnalysis(NoteContentAnalyzer.getInstance().getAnalysis(noteContent));
     }
     
-    private static List<Integer> findAllOccurences(final String text, final Pattern pattern) {
-        final List<Integer> result = new LinkedList<>();
-        
-        if (text.isEmpty()) {
-            return result;
-        }
-        
-        final Matcher matcher = pattern.matcher(text);
-        while (matcher.find()) {
-            result.add(matcher.start());
+    private Set<Note> linkedNotesForAnalysis(final NoteContentAnalysis analysis) {
+        final Set<Note> result = newNoteSet();
+
+        for (String linkName : analysis.getNoteLinks()) {
+            final Note linkedNote = FileManager.getInstance().getNote(linkName);
+            if (linkedNote != null) {
+                result.add(linkedNote);
+            }
         }
         
         return result;
     }
     
     private boolean updateExistingLinks(final String oldNoteName, final String newNoteName) {
-        boolean result = true;
-
         // find all notes with the old link
         // we're called after the fact - linked note already has a new name...
         final Set<Note> linkedNotes = findNotesWithLink(newNoteName);
         
         // update content to point to the new link
+        final List<Note> changedNotes = new ArrayList<>();
         for (Note note : linkedNotes) {
             if (myEditor != null && note.equals(myEditor.getEditedNote())) {
                 // the currently edited note - let htmleditor do the work
@@ -243,25 +272,32 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
                 FileManager.getInstance().readNote(note, false);
                 String content = note.getNoteFileContent();
                 
-                content = replaceNoteLinks(content, oldNoteName, newNoteName);
+                // TFE, 20261017: we know where the links are - as long as the content hasn't changed since
+                final LinkPositions positions = linkPositions.get(note);
+                if (positions != null && positions.content == content) {
+                    content = replaceNoteLinks(content, positions.positions, oldNoteName, newNoteName);
+                } else {
+                    content = replaceNoteLinks(content, oldNoteName, newNoteName);
+                }
 
                 // set back content - also to editor content for next editing of note
                 note.setNoteFileContent(content);
                 if (note.getNoteEditorContent() != null) {
                     note.setNoteEditorContent(content);
                 }
-
-                // suppress messages since we won't find all check boxes anymore
-                if (!FileManager.getInstance().saveNote(note, true)) {
-                    result = false;
-                    break;
-                }
+                changedNotes.add(note);
             }
         }
         
-        // init everything here...
-        noteLinksInitialized = false;
-        findNoteLinks();
+        // suppress messages since we won't find all check boxes anymore
+        final boolean result = FileManager.getInstance().saveNotes(changedNotes, true);
+        
+        // TFE, 20261017: the linked notes are still the same - only positions of links after the changed ones have moved
+        if (noteLinksInitialized) {
+            for (Note note : changedNotes) {
+                initNoteLinks(note, note.getNoteFileContent());
+            }
+        }
 
         return result;
     }
@@ -298,21 +334,65 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
             }
         }
 
-        // init everything here...
-        noteLinksInitialized = false;
-        findNoteLinks();
+        // TFE, 20261017: only the notes we have changed need to be checked again - no need to re-init everything
+        if (noteLinksInitialized) {
+            for (Note note : linkedNotes) {
+                initNoteLinks(note, note.getNoteEditorContent() != null ? note.getNoteEditorContent() : note.getNoteFileContent());
+            }
+        }
 
         return result;
     }
     
     public static String replaceNoteLinks(final String noteContent, final String oldNoteName, final String newNoteName) {
-        // we need to replace the link and the text of the link
-        // AND we might have multiple occurences of the link...
-        // SO replace everything - even if it might also not be used as a link...
-        String oldNote = oldNoteName.replace("." + FileManager.NOTE_EXT, "").replace("[", "\\[").replace("]", "\\]");
-        String newNote = newNoteName.replace("." + FileManager.NOTE_EXT, "");
+        return replaceNoteLinks(noteContent, NoteContentAnalyzer.getInstance().getAnalysis(noteContent).getNoteLinkPositions(), oldNoteName, newNoteName);
+    }
+    
+    // TFE, 20261017: we need to replace the link and the text of the link - but only there and not everywhere in the text
+    protected static String replaceNoteLinks(final String noteContent, final List<Integer> linkPositions, final String oldNoteName, final String newNoteName) {
+        if (noteContent == null || linkPositions.isEmpty()) {
+            return noteContent;
+        }
+
+        final String noteExt = "." + FileManager.NOTE_EXT;
+        final String oldLink = oldNoteName.endsWith(noteExt) ? oldNoteName : oldNoteName + noteExt;
+        final String newLink = newNoteName.endsWith(noteExt) ? newNoteName : newNoteName + noteExt;
+        final String oldText = oldLink.substring(0, oldLink.length() - noteExt.length());
+        final String newText = newLink.substring(0, newLink.length() - noteExt.length());
+
+        final StringBuilder result = new StringBuilder(noteContent.length() + 
+                linkPositions.size() * Math.max(0, newLink.length() - oldLink.length()) * 2);
+        int lastPos = 0;
+        for (int linkPos : linkPositions) {
+            // <a href=" + file:/// + note file name + "
+            final int nameStart = linkPos + LINK_START.length() + 1 + HTMLEditor.NOTE_HTML_LINK_TYPE.length();
+            final int nameEnd = nameStart + oldLink.length();
+            if (linkPos < lastPos || 
+                    !noteContent.startsWith(LINK_START, linkPos) || 
+                    !noteContent.startsWith(oldLink, nameStart) || 
+                    nameEnd >= noteContent.length() ||
+                    (noteContent.charAt(nameEnd) != '"' && noteContent.charAt(nameEnd) != '\'')) {
+                // link to some other note
+                continue;
+            }
+            
+            result.append(noteContent, lastPos, nameStart).append(newLink);
+            lastPos = nameEnd;
+            
+            // text of the link is the note name - unless someone has changed it
+            final int textStart = noteContent.indexOf('>', nameEnd) + 1;
+            if (textStart > 0 && noteContent.startsWith(oldText + LINK_END, textStart)) {
+                result.append(noteContent, lastPos, textStart).append(newText);
+                lastPos = textStart + oldText.length();
+            }
+        }
+        
+        if (lastPos == 0) {
+            return noteContent;
+        }
+        result.append(noteContent, lastPos, noteContent.length());
         
-        return noteContent.replaceAll(oldNote, newNote);
+        return result.toString();
     }
     
     public static String invalidateNoteLinks(final String noteContent, final String noteName) {
@@ -323,20 +403,47 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
     }
     
     private Set<Note> findNotesWithLink(final String noteName) {
-        final Set<Note> linkedNotes = new HashSet<>();
-        for (Note note : linkList.keySet()) {
-            final long linkCount = note.getMetaData().getLinkedNotes().stream().filter((t) -> {
-                return (t != null) && (t.getNoteFileName().equals(noteName));
-            }).count();
-            
-            if (linkCount > 0) {
-                linkedNotes.add(note);
+        final Set<Note> linkedNotes = newNoteSet();
+        // TFE, 20261017: backlinks know who is linking to a note
+        for (Map.Entry<Note, Set<Note>> entry : backlinkList.entrySet()) {
+            if (entry.getKey().getNoteFileName().equals(noteName)) {
+                linkedNotes.addAll(entry.getValue());
             }
         }
         
         return linkedNotes;
     }
 
+    // TFE, 20261017: incremental update for a single note file that has been created outside of the editor
+    public void addNoteLinks(final Note note) {
+        if (!noteLinksInitialized) {
+            // will be done during lazy loading
+            return;
+        }
+
+        inFileChange = true;
+        initNoteLinks(note, FileManager.getInstance().readNote(note, false).getNoteFileContent());
+        inFileChange = false;
+    }
+    
+    // TFE, 20261017: incremental update for a single note file that has been deleted outside of the editor
+    public boolean removeNoteLinks(final Note note) {
+        inFileChange = true;
+        // remove links to the note from all other notes
+        final boolean result = invalidateExistingLinks(note.getNoteFileName());
+        
+        // and remove the note itself
+        final Set<Note> prevLinkedNotes = linkList.remove(note);
+        linkPositions.remove(note);
+        if (prevLinkedNotes != null && noteLinksInitialized) {
+            updateBacklinks(note, prevLinkedNotes, null);
+        }
+        backlinkList.remove(note);
+        inFileChange = false;
+        
+        return result;
+    }
+
     @Override
     public boolean createNote(TagData newGroup, String newNoteName) {
         // nothing to do
@@ -360,7 +467,7 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
 
     @Override
     public boolean deleteNote(Note curNote) {
-        return invalidateExistingLinks(curNote.getNoteFileName());
+        return removeNoteLinks(curNote);
     }
 
     @Override
@@ -383,7 +490,8 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
         Platform.runLater(() -> {
             inFileChange = true;
             // only act for files not currently shown - that will come via FileContentChange...
-            if (StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind) || StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
+            // TFE, 20261017: deleted files are handled via removeNoteLinks() from OwnNoteEditor
+            if (StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
                 // file deleted -> remove any links
                 // unfortunately, the java watcher implementation doesn't provide a "before" and "after" in the case of modify - so we can only try to delete as well
                 invalidateExistingLinks(filePath.getFileName().toString());
@@ -402,13 +510,20 @@ public class LinkManager implements INoteCRMDS, IFileChangeSubscriber, IFileCont
         }
 
         inFileChange = true;
-        // check if links have changed
-        if (initNoteLinks(note, newContent)) {
-            // links have changed - now update any backlinks
-            initBacklinks();
-        }
+        // check if links have changed - backlinks are updated along the way
+        initNoteLinks(note, newContent);
         inFileChange = false;
         
         return true;
     }
+
+    @Override
+    public BooleanSupplier prepareFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change) {
+        // TFE, 20261017: walk through the content on the worker thread - initNoteLinks() gets the cached analysis
+        NoteContentAnalyzer.getInstance().getAnalysis(change.getNewContent());
+
+        return () -> {
+            return processFileContentChange(changeType, note, change.getOldContent(), change.getNewContent());
+        };
+    }
 }
@@ -32,6 +32,7 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.text.SimpleDateFormat;
 import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -40,6 +41,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.application.Platform;
@@ -103,6 +106,7 @@ import tf.ownnote.ui.helper.FileManager;
 import tf.ownnote.ui.helper.FormatHelper;
 import tf.ownnote.ui.helper.IFileChangeSubscriber;
 import tf.ownnote.ui.helper.IGroupListContainer;
+import tf.ownnote.ui.helper.NoteSnapshot;
 import tf.ownnote.ui.helper.RecentNoteForGroup;
 import tf.ownnote.ui.links.LinkManager;
 import tf.ownnote.ui.notes.INoteCRMDS;
@@ -326,6 +330,11 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
     // TFE, 20230423: show / hide notes from subgroups
     @FXML
     private CheckMenuItem menuShowNotesFromSubGroups;
+    // TFE, 20261017: images as files in the attachments directory
+    @FXML
+    private CheckMenuItem menuExternalizeImages;
+    @FXML
+    private MenuItem menuMoveImages;
 
     public OwnNoteEditor() {
     }
@@ -383,6 +392,9 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
             // TFE, 20201121: tag info is now stored in a separate file
             TagManager.getInstance().saveTags();
 
+            // TFE, 20261017: decoded note headers are stored in a separate file as well
+            FileManager.getInstance().saveNoteHeaderIndex();
+
             // TFE, 20201230: task metadata is now stored in a separate file
             TaskManager.getInstance().saveTaskList();
         }
@@ -827,6 +839,14 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
             notesTable.setFilterPredicate();
         });
         
+        menuExternalizeImages.setSelected(EditorPreferences.EXTERNALIZE_IMAGES.getAsType());
+        menuExternalizeImages.selectedProperty().addListener((ObservableValue<? extends Boolean> ov, Boolean t, Boolean t1) -> {
+            EditorPreferences.EXTERNALIZE_IMAGES.put(menuExternalizeImages.isSelected());
+        });
+        menuMoveImages.setOnAction((t) -> {
+            noteHTMLEditor.externalizeAllImages();
+        });
+        
         // TFE, 20220429: get app version so that we can compare it with one from registry - to determine migration needs!
         AppInfo.getInstance().initAppInfo(OwnNoteEditor.class, "OwnNoteEditor", "v6.3", "https://github.com/ThomasDaheim/ownNoteEditor");
         AppVersion.CURRENT.setVersionId(Double.valueOf(AppInfo.getInstance().getAppVersion()));
@@ -1092,6 +1112,14 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
 
     @Override
     public boolean saveNote(final Note note) {
+        // TFE, 20261017: no more inline images if the user wants it that way
+        // done by the editor so that tasks & links get the change like any other
+        if (EditorPreferences.EXTERNALIZE_IMAGES.getAsType()) {
+            if (note.equals(noteHTMLEditor.getEditedNote())) {
+                noteHTMLEditor.externalizeImages();
+            }
+        }
+
         boolean result = FileManager.getInstance().saveNote(note);
                 
         if (result) {
@@ -1214,6 +1242,8 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
                 // TFE, 20231103: only re-init if required
                 // required for new notes & deleted notes
                 boolean needsInit = StandardWatchEventKinds.ENTRY_CREATE.equals(eventKind) || StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind);
+                // TFE, 20261017: single created / deleted notes can be applied incrementally - everything else needs a full re-init
+                boolean needsFullInit = false;
                 
                 if (!StandardWatchEventKinds.ENTRY_CREATE.equals(eventKind)) {
                     // delete & modify is only relevant if we're editing this note...
@@ -1258,6 +1288,7 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
                                     }
                                     // required for new notes
                                     needsInit = true;
+                                    needsFullInit = true;
                                 }
 
                                 if (saveChanges.get().equals(buttonDiscard)) {
@@ -1279,9 +1310,11 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
             
                 // TFE, 20210101: only initFromDirectory if anything related to note files has changed!
                 if (FileManager.NOTE_EXT.equals(FilenameUtils.getExtension(fileName))) {
-                    if (needsInit) {
+                    if (needsFullInit) {
                         // show only notes for selected group
                         initFromDirectory(true, true);
+                    } else if (needsInit) {
+                        applyNoteFileChange(eventKind, fileName);
                     }
                     selectFirstOrCurrentNote();
 
@@ -1299,6 +1332,49 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
         return result;
     }
 
+    // TFE, 20261017: apply a created / deleted note file to all lists without re-reading the whole directory
+    // a renamed file comes as delete & create - so nothing special to do for that
+    private void applyNoteFileChange(final WatchEvent.Kind<?> eventKind, final String fileName) {
+        if (StandardWatchEventKinds.ENTRY_CREATE.equals(eventKind)) {
+            if (FileManager.getInstance().getNote(fileName) != null) {
+                // we know this one already
+                return;
+            }
+            
+            final int groupCount = TagManager.getInstance().getGroupTags(true).size();
+            final Note note = FileManager.getInstance().addNoteFile(fileName);
+            if (note == null) {
+                // file is gone again
+                return;
+            }
+            
+            TaskManager.getInstance().addNoteTasks(note);
+            LinkManager.getInstance().addNoteLinks(note);
+            notesList.add(note);
+
+            if (groupCount != TagManager.getInstance().getGroupTags(true).size()) {
+                // note with a new group - show it
+                myGroupList.setGroups(TagManager.getInstance().getGroupTags(false), true);
+            }
+        } else if (StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind)) {
+            final Note note = FileManager.getInstance().removeNoteFile(fileName);
+            if (note == null) {
+                // never heard of this one
+                return;
+            }
+            
+            if (note.equals(noteHTMLEditor.getEditedNote())) {
+                // own changes have been discarded
+                noteHTMLEditor.editNote(null);
+                noteMetaEditor.editNote(null);
+            }
+            
+            TaskManager.getInstance().removeNoteTasks(note);
+            LinkManager.getInstance().removeNoteLinks(note);
+            notesList.remove(note);
+        }
+    }
+
     public String getCurrentTimeStamp() {
         return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date());
     }
@@ -1343,6 +1419,14 @@ public class OwnNoteEditor implements Initializable, IFileChangeSubscriber, INot
         return FileManager.getInstance().getNotesWithText(searchText);
     }
     
+    public List<NoteSnapshot> getNoteSnapshots(final Collection<Note> notes) {
+        return FileManager.getInstance().getNoteSnapshots(notes);
+    }
+    
+    public void findNotesWithText(final String searchText, final Collection<NoteSnapshot> notes, final Consumer<Note> consumer, final BooleanSupplier isCancelled) {
+        FileManager.getInstance().findNotesWithText(searchText, notes, consumer, isCancelled);
+    }
+    
     public Window getWindow() {
         return borderPane.getScene().getWindow();
     }
@@ -253,6 +253,10 @@ public class Note {
         setMetaData(NoteMetaData.fromHtmlComment(this, comment));
     }
     
+    public void setMetaDataFromDecodedHtmlComment(final String[] decodedData) {
+        setMetaData(NoteMetaData.fromDecodedHtmlComment(this, decodedData));
+    }
+    
     public String getNoteFileName() {
         return FileManager.getInstance().buildNoteName(this);
     }
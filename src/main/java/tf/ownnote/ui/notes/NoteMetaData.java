@@ -307,14 +307,27 @@ public class NoteMetaData implements ICommentDataHolder, ITagHolder {
     }
     
     protected static NoteMetaData fromHtmlComment(final Note note, final String htmlString) {
-        final NoteMetaData result = new NoteMetaData(note);
-
+        return fromDecodedHtmlComment(note, decodeHtmlComment(htmlString, note.getNoteName()));
+    }
+    
+    // TFE, 20261017: decode only - doesn't create any objects (tags, ...) and can be called in parallel
+    public static String[] decodeHtmlComment(final String htmlString, final String noteName) {
         // parse html string
         // everything inside a <!-- --> could be metadata in the form 
         // authors="xyz" tags="a:::b:::c"
         
         if (htmlString != null && hasMetaDataContent(htmlString)) {
-            CommentDataMapper.getInstance().fromComment(result, htmlString);
+            return CommentDataMapper.getInstance().decodeComment(htmlString, "NoteMetaData: " + noteName);
+        } else {
+            return null;
+        }
+    }
+    
+    protected static NoteMetaData fromDecodedHtmlComment(final Note note, final String[] decodedData) {
+        final NoteMetaData result = new NoteMetaData(note);
+
+        if (decodedData != null) {
+            CommentDataMapper.getInstance().fromDecodedComment(result, decodedData);
             // no changes for "newborn" metadata
             result.setUnsavedChanges(false);
         }
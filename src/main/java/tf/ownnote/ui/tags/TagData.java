@@ -25,8 +25,10 @@
  */
 package tf.ownnote.ui.tags;
 
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -65,6 +67,9 @@ public class TagData {
     
     // link to notes with this tag - transient, will be re-created on startup
     private final ObservableSet<Note> linkedNotes = FXCollections.<Note>observableSet();
+    // TFE, 20261017: notes linked to this tag or any of its children - with the number of tags they're linked to
+    // kept up to date on (un)linking of notes and on re-parenting of tags, so that counting is for free
+    private final Map<Note, Integer> hierarchyNotes = new IdentityHashMap<>();
     
     // we don't do Group as subclass of Tag but as attribute
     private final BooleanProperty isGroupProperty = new SimpleBooleanProperty(false);
@@ -107,10 +112,12 @@ public class TagData {
         linkedNotes.addListener((SetChangeListener.Change<? extends Note> change) -> {
             if (change.wasAdded()) {
 //                        System.out.println("Setting linked note " + change.getElementAdded().getNoteName() + " for tag " + getName() + ", " + this + ", linked notes count " + linkedNotes.size());
+                updateHierarchyNote(this, change.getElementAdded(), 1);
             }
 
             if (change.wasRemoved()) {
 //                        System.out.println("Removing linked note " + change.getElementRemoved().getNoteName() + " for tag " + getName() + ", " + this + ", linked notes count " + linkedNotes.size());
+                updateHierarchyNote(this, change.getElementRemoved(), -1);
             }
         });
         
@@ -258,18 +265,15 @@ public class TagData {
         return linkedNotes;
     }
     
-    private ObservableSet<Note> getLinkedNotes(final boolean includeHierarchy) {
-        if (!includeHierarchy) {
-            return linkedNotes;
-        } else {
-            final ObservableSet<Note> notes = FXCollections.<Note>observableSet();
-            notes.addAll(linkedNotes);
-            
-            for (TagData child : getChildren()) {
-                notes.addAll(child.getLinkedNotes(includeHierarchy));
+    // update counts for this tag and all its parents
+    private static void updateHierarchyNote(final TagData startTag, final Note note, final int count) {
+        for (TagData tag = startTag; tag != null; tag = tag.getParent()) {
+            final int newCount = tag.hierarchyNotes.getOrDefault(note, 0) + count;
+            if (newCount > 0) {
+                tag.hierarchyNotes.put(note, newCount);
+            } else {
+                tag.hierarchyNotes.remove(note);
             }
-            
-            return notes;
         }
     }
 
@@ -283,7 +287,12 @@ public class TagData {
             return 0;
         }
 
-        return getLinkedNotes(includeHierarchy).size();
+        if (!includeHierarchy) {
+            return linkedNotes.size();
+        } else {
+            // TFE, 20261017: no need to collect the notes of all children anymore
+            return hierarchyNotes.size();
+        }
     }
     
     public ObservableList<TagData> getChildren() {
@@ -314,7 +323,19 @@ public class TagData {
 //        } else {
 //            System.out.println("Setting parent to 'null' for tag " + getName());
 //        }
+        // TFE, 20261017: our notes move with us
+        final TagData oldParent = getParent();
+        if (oldParent != null) {
+            for (Map.Entry<Note, Integer> entry : hierarchyNotes.entrySet()) {
+                updateHierarchyNote(oldParent, entry.getKey(), -entry.getValue());
+            }
+        }
         parentProperty.set(parent);
+        if (parent != null) {
+            for (Map.Entry<Note, Integer> entry : hierarchyNotes.entrySet()) {
+                updateHierarchyNote(parent, entry.getKey(), entry.getValue());
+            }
+        }
     }
     
     // method to get flat stream of taginfo + all its child tags
@@ -0,0 +1,186 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.tags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash indexes for the tag tree: by name and by external name.
+ * 
+ * Tag names aren't unique in the tree - the same name can exist under different parents. 
+ * So the name index only narrows down the candidates and the caller needs to check the 
+ * position in the tree. External names depend on the whole path to the tag and are therefore 
+ * only cached until the next change of the tree.
+ * 
+ * For descendant checks each tag gets its pre-order number in the tree and the last pre-order 
+ * number of its subtree. Those are re-calculated lazily after any change of the tree.
+ * 
+ * Not thread safe - as the tag tree it needs to be used from the FX thread only.
+ * 
+ * @author thomas
+ */
+public class TagDataIndex {
+    private final Map<String, List<TagData>> tagsByName = new HashMap<>();
+    // tags are compared by identity anyways
+    private final Map<TagData, String> indexedName = new IdentityHashMap<>();
+    // external names relative to a start tag
+    private final Map<TagData, Map<String, TagData>> tagsByExternalName = new IdentityHashMap<>();
+    // first & last pre-order number in the subtree of the tag
+    private final Map<TagData, int[]> tagIntervals = new IdentityHashMap<>();
+    
+    private TagData rootTag;
+    private boolean ready = false;
+    private boolean intervalsValid = false;
+    
+    public TagDataIndex() {
+        super();
+    }
+    
+    public void build(final TagData root) {
+        clear();
+        rootTag = root;
+        addTagTree(root);
+        ready = true;
+    }
+    
+    public void clear() {
+        tagsByName.clear();
+        indexedName.clear();
+        tagsByExternalName.clear();
+        tagIntervals.clear();
+        rootTag = null;
+        ready = false;
+        intervalsValid = false;
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    public boolean containsTag(final TagData tag) {
+        return indexedName.containsKey(tag);
+    }
+    
+    public void addTagTree(final TagData tag) {
+        tag.flattened().forEach((t) -> {
+            addTag(t);
+        });
+        tagsByExternalName.clear();
+        intervalsValid = false;
+    }
+    
+    public void removeTagTree(final TagData tag) {
+        tag.flattened().forEach((t) -> {
+            removeTag(t);
+        });
+        tagsByExternalName.clear();
+        intervalsValid = false;
+    }
+    
+    public void renameTag(final TagData tag) {
+        if (!indexedName.containsKey(tag)) {
+            return;
+        }
+        
+        removeTag(tag);
+        addTag(tag);
+        // external names of all children have changed as well
+        tagsByExternalName.clear();
+    }
+    
+    private void addTag(final TagData tag) {
+        if (indexedName.containsKey(tag)) {
+            // we might get notified more than once
+            return;
+        }
+        
+        indexedName.put(tag, tag.getName());
+        tagsByName.computeIfAbsent(tag.getName(), (t) -> new ArrayList<>(1)).add(tag);
+    }
+    
+    private void removeTag(final TagData tag) {
+        final String name = indexedName.remove(tag);
+        if (name == null) {
+            return;
+        }
+        
+        final List<TagData> tags = tagsByName.get(name);
+        if (tags != null) {
+            tags.remove(tag);
+            if (tags.isEmpty()) {
+                tagsByName.remove(name);
+            }
+        }
+    }
+    
+    public List<TagData> getTagsForName(final String name) {
+        final List<TagData> result = tagsByName.get(name);
+        if (result == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    public TagData getTagForExternalName(final TagData startTag, final String externalName) {
+        final Map<String, TagData> tags = tagsByExternalName.get(startTag);
+        if (tags == null) {
+            return null;
+        }
+        return tags.get(externalName);
+    }
+    
+    public void putTagForExternalName(final TagData startTag, final String externalName, final TagData tag) {
+        tagsByExternalName.computeIfAbsent(startTag, (t) -> new HashMap<>()).put(externalName, tag);
+    }
+    
+    public int[] getInterval(final TagData tag) {
+        if (!intervalsValid) {
+            tagIntervals.clear();
+            if (rootTag != null) {
+                numberTag(rootTag, 0);
+            }
+            intervalsValid = true;
+        }
+        
+        return tagIntervals.get(tag);
+    }
+    
+    // returns the last number used in the subtree
+    private int numberTag(final TagData tag, final int number) {
+        int last = number;
+        for (TagData child : tag.getChildren()) {
+            last = numberTag(child, last + 1);
+        }
+        tagIntervals.put(tag, new int[] {number, last});
+        
+        return last;
+    }
+}
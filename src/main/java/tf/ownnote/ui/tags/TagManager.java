@@ -219,6 +219,8 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
     private final ListChangeListener<TagData> tagChildrenListener;
     // know thy listeners - to able to add / remove from added / removed tags
     private final List<ListChangeListener<? super TagData>> tagChildrenChangeListeners = new ArrayList<>();
+    // TFE, 20261017: find tags by name without walking the whole tree - kept current via tagChildrenListener
+    private final TagDataIndex tagIndex = new TagDataIndex();
     
     // callback to OwnNoteEditor
     private OwnNoteEditor myEditor;
@@ -236,6 +238,11 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
                             // can't check for isGroupsChildTag(tag) anymore since it has already been removed from the parent...
 //                            System.out.println("Tag " + tag.getId() + ", " + tag.getName() + " was removed from group tags");
                             groupTags.remove(tag);
+                            
+                            // might already have been added to some other tag - parent has been set by TagData
+                            if (tagIndex.isReady() && tag.getParent() == null) {
+                                tagIndex.removeTagTree(tag);
+                            }
                         }
                     }
                     if (change.wasAdded()) {
@@ -244,6 +251,10 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
 //                                System.out.println("Tag " + tag.getId() + ", " + tag.getName() + " was added to group tags");
                                 groupTags.add(tag);
                             }
+                            
+                            if (tagIndex.isReady()) {
+                                tagIndex.addTagTree(tag);
+                            }
                         }
                     }
                     if (change.wasUpdated()) {
@@ -280,6 +291,8 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
 
             // we want to listen to everything as well
             doAddAllListener(ROOT_TAG);
+            
+            tagIndex.build(ROOT_TAG);
         }
     }
     
@@ -397,6 +410,7 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
     public void resetTagList() {
         if (LoadingState.LOADED.equals(loadingState)) {
             doRemoveAllListener(ROOT_TAG);
+            tagIndex.clear();
             ROOT_TAG.getChildren().clear();
             loadingState = LoadingState.NOT_LOADED;
         }
@@ -437,6 +451,7 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
             xstream.aliasField("colorName", TagData.class, "colorNameProperty");
             
             xstream.omitField(TagData.class, "linkedNotes");
+            xstream.omitField(TagData.class, "hierarchyNotes");
             xstream.omitField(TagData.class, "parentProperty");
             // TFE, 20201220: we had that in for a while
             xstream.omitField(TagData.class, "fixedProperty");
@@ -633,6 +648,8 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
     
     public void processTagNameChange(final TagData tag, final String oldValue, final String newValue) {
         // nothing to do here! we already have renameTag!
+        // TFE, 20261017: except for keeping the index up to date
+        tagIndex.renameTag(tag);
     }
 
     public void saveTags() {
@@ -681,6 +698,7 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
         
         xstream.omitField(TagData.class, "levelProperty");
         xstream.omitField(TagData.class, "linkedNotes");
+        xstream.omitField(TagData.class, "hierarchyNotes");
         xstream.omitField(TagData.class, "parentProperty");
         xstream.omitField(TagData.class, "isGroupProperty");
         xstream.omitField(TagData.class, "isArchivedGroupProperty");
@@ -766,6 +784,16 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
         if (parent == null) {
             startTag = getRootTag();
         }
+        
+        // TFE, 20261017: been there, done that
+        final TagData realStartTag = startTag;
+        if (tagIndex.isReady()) {
+            final TagData tag = tagIndex.getTagForExternalName(realStartTag, tagName);
+            if (tag != null) {
+                return tag;
+            }
+        }
+
         for (String name : tagNames) {
             // skip empty entries in list
             if (!name.isEmpty()) {
@@ -779,6 +807,10 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
             }
         }
         
+        if (startTag != null && tagIndex.isReady()) {
+            tagIndex.putTagForExternalName(realStartTag, tagName, startTag);
+        }
+        
         return startTag;
     }
 
@@ -845,27 +877,22 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
         final Set<TagData> result = new HashSet<>();
         
         final TagData realStartTag = (parent != null) ? parent : getRootTag();
+        // TFE, 20261017: use the index if the start tag is part of the tag tree
+        final boolean useIndex = tagIndex.isReady() && tagIndex.containsTag(realStartTag);
 
-        final Set<TagData> flatTags = new HashSet<>();
-        // TFE, 20220404: start tag might be the one we're looking for - not necessarily a child
-        flatTags.add(realStartTag);
-
-        if (includeHierarchy) {
-            // flatten tagslist to set
-            // http://squirrel.pl/blog/2015/03/04/walking-recursive-data-structures-using-java-8-streams/
-            // https://stackoverflow.com/a/31992391
-            flatTags.addAll(realStartTag.getChildren().stream().map((t) -> {
-                return t.flattened();
-            }).flatMap(Function.identity()).collect(Collectors.toSet()));
-        } else {
-            // inly use direct children
-            flatTags.addAll(realStartTag.getChildren());
-        }
-
+        Set<TagData> flatTags = null;
         for (String tagName : tagNames) {
-            final Optional<TagData> tag = flatTags.stream().filter((t) -> {
-                return compareTags(t, tagName, mode);
-            }).findFirst();
+            final Optional<TagData> tag;
+            if (useIndex) {
+                tag = findTagInIndex(tagName, realStartTag, includeHierarchy, mode);
+            } else {
+                if (flatTags == null) {
+                    flatTags = getFlatTags(realStartTag, includeHierarchy);
+                }
+                tag = flatTags.stream().filter((t) -> {
+                    return compareTags(t, tagName, mode);
+                }).findFirst();
+            }
             
             if (tag.isPresent()) {
 //                System.out.println("    found: " + tagName);
@@ -893,6 +920,61 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
         return result;
     }
     
+    private static Set<TagData> getFlatTags(final TagData startTag, final boolean includeHierarchy) {
+        final Set<TagData> flatTags = new HashSet<>();
+        // TFE, 20220404: start tag might be the one we're looking for - not necessarily a child
+        flatTags.add(startTag);
+
+        if (includeHierarchy) {
+            // flatten tagslist to set
+            // http://squirrel.pl/blog/2015/03/04/walking-recursive-data-structures-using-java-8-streams/
+            // https://stackoverflow.com/a/31992391
+            flatTags.addAll(startTag.getChildren().stream().map((t) -> {
+                return t.flattened();
+            }).flatMap(Function.identity()).collect(Collectors.toSet()));
+        } else {
+            // inly use direct children
+            flatTags.addAll(startTag.getChildren());
+        }
+        
+        return flatTags;
+    }
+    
+    private Optional<TagData> findTagInIndex(final String tagName, final TagData startTag, final boolean includeHierarchy, final TagCompare mode) {
+        String name = tagName;
+        if (TagCompare.BY_EXTERNAL_NAME.equals(mode)) {
+            // last part of the external name is the name of the tag
+            name = tagName.substring(tagName.lastIndexOf(EXTERNAL_NAME_SEPARATOR) + 1);
+        }
+        
+        for (TagData tag : tagIndex.getTagsForName(name)) {
+            if (compareTags(tag, tagName, mode) && isTagBelow(tag, startTag, includeHierarchy)) {
+                return Optional.of(tag);
+            }
+        }
+        
+        return Optional.empty();
+    }
+    
+    private static boolean isTagBelow(final TagData tag, final TagData startTag, final boolean includeHierarchy) {
+        if (tag == startTag) {
+            return true;
+        }
+        if (!includeHierarchy) {
+            return tag.getParent() == startTag;
+        }
+        
+        TagData parent = tag.getParent();
+        while (parent != null) {
+            if (parent == startTag) {
+                return true;
+            }
+            parent = parent.getParent();
+        }
+        
+        return false;
+    }
+    
     public TagData getComplementaryGroup(final TagData tag, final boolean createIfNotFound) {
         assert tag != null;
         assert tag.isGroup();
@@ -1107,6 +1189,15 @@ public class TagManager implements IFileChangeSubscriber, IFileContentChangeSubs
         assert tag != null;
         assert check != null;
         
+        // TFE, 20261017: for identity its enough to compare the positions in the tree
+        if (includeHierarchy && TagCompare.BY_IDENTITY.equals(compareMode) && tagIndex.isReady()) {
+            final int[] tagInterval = tagIndex.getInterval(tag);
+            final int[] checkInterval = tagIndex.getInterval(check);
+            if (tagInterval != null && checkInterval != null) {
+                return (tagInterval[0] <= checkInterval[0]) && (checkInterval[0] <= tagInterval[1]);
+            }
+        }
+        
         boolean result = compareTags(tag, check, compareMode);
         
         if (!result && includeHierarchy) {
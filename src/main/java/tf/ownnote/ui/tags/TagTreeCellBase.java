@@ -79,7 +79,7 @@ public class TagTreeCellBase {
             // TFE, 20220410: we can have notes at tag branches - not only leaves
             final int noteCount = tag.getLinkesNoteCount(true);
             if (noteCount > 0) {
-                return tag.getName() + " (" + tag.getLinkesNoteCount(true) + ")";
+                return tag.getName() + " (" + noteCount + ")";
             } else {
                 return tag.getName();
             }
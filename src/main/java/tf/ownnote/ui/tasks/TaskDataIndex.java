@@ -0,0 +1,235 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.tasks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import tf.ownnote.ui.notes.Note;
+
+/**
+ * Secondary indexes for the task list: by id, by note, by status and by completion.
+ * 
+ * The observable list remains the UI-facing view. The indexes follow its changes via a 
+ * ListChangeListener - including the update events for status & completion from the 
+ * property extractor of the list. Only id changes need to be reported explicitly.
+ * 
+ * Not thread safe - as the observable list it needs to be used from the FX thread only.
+ * 
+ * @author thomas
+ */
+public class TaskDataIndex {
+    // duplicate ids can exist until resolveDuplicateTaskIds() has done its job
+    private final Map<String, List<TaskData>> tasksById = new HashMap<>();
+    // notes are identified by identity since equals() & hashCode() of Note change with name & group
+    private final Map<Note, Set<TaskData>> tasksByNote = new IdentityHashMap<>();
+    private final Map<TaskData.TaskStatus, Set<TaskData>> tasksByStatus = new EnumMap<>(TaskData.TaskStatus.class);
+    private final Set<TaskData> completedTasks = new LinkedHashSet<>();
+    private final Set<TaskData> openTasks = new LinkedHashSet<>();
+    
+    // what we have indexed the task with - needed to find it again after the value has changed
+    private final Map<TaskData, TaskData.TaskStatus> indexedStatus = new HashMap<>();
+    private final Map<TaskData, String> indexedId = new HashMap<>();
+
+    public TaskDataIndex() {
+        super();
+        
+        for (TaskData.TaskStatus status : TaskData.TaskStatus.values()) {
+            tasksByStatus.put(status, new LinkedHashSet<>());
+        }
+    }
+    
+    public void attach(final ObservableList<TaskData> taskList) {
+        clear();
+        for (TaskData task : taskList) {
+            addTask(task);
+        }
+        
+        taskList.addListener((ListChangeListener.Change<? extends TaskData> change) -> {
+            while (change.next()) {
+                if (change.wasPermutated()) {
+                    // order doesn't matter for us
+                    continue;
+                }
+                if (change.wasUpdated()) {
+                    for (TaskData task : change.getList().subList(change.getFrom(), change.getTo())) {
+                        updateTask(task);
+                    }
+                    continue;
+                }
+                for (TaskData task : change.getRemoved()) {
+                    removeTask(task);
+                }
+                for (TaskData task : change.getAddedSubList()) {
+                    addTask(task);
+                }
+            }
+        });
+    }
+    
+    public void clear() {
+        tasksById.clear();
+        tasksByNote.clear();
+        for (Set<TaskData> tasks : tasksByStatus.values()) {
+            tasks.clear();
+        }
+        completedTasks.clear();
+        openTasks.clear();
+        indexedStatus.clear();
+        indexedId.clear();
+    }
+    
+    private void addTask(final TaskData task) {
+        if (indexedId.containsKey(task)) {
+            // same task added twice to the list
+            return;
+        }
+
+        indexedId.put(task, task.getId());
+        tasksById.computeIfAbsent(task.getId(), (t) -> new ArrayList<>(1)).add(task);
+        tasksByNote.computeIfAbsent(task.getNote(), (t) -> new LinkedHashSet<>()).add(task);
+
+        indexedStatus.put(task, task.getTaskStatus());
+        tasksByStatus.get(task.getTaskStatus()).add(task);
+        if (task.isCompleted()) {
+            completedTasks.add(task);
+        } else {
+            openTasks.add(task);
+        }
+    }
+    
+    private void removeTask(final TaskData task) {
+        final String id = indexedId.remove(task);
+        if (id == null) {
+            return;
+        }
+
+        removeFromId(task, id);
+
+        final Set<TaskData> noteTasks = tasksByNote.get(task.getNote());
+        if (noteTasks != null) {
+            noteTasks.remove(task);
+            if (noteTasks.isEmpty()) {
+                tasksByNote.remove(task.getNote());
+            }
+        }
+
+        tasksByStatus.get(indexedStatus.remove(task)).remove(task);
+        completedTasks.remove(task);
+        openTasks.remove(task);
+    }
+    
+    private void updateTask(final TaskData task) {
+        final TaskData.TaskStatus oldStatus = indexedStatus.get(task);
+        if (oldStatus == null) {
+            return;
+        }
+
+        if (!oldStatus.equals(task.getTaskStatus())) {
+            tasksByStatus.get(oldStatus).remove(task);
+            tasksByStatus.get(task.getTaskStatus()).add(task);
+            indexedStatus.put(task, task.getTaskStatus());
+        }
+        if (task.isCompleted()) {
+            if (completedTasks.add(task)) {
+                openTasks.remove(task);
+            }
+        } else {
+            if (openTasks.add(task)) {
+                completedTasks.remove(task);
+            }
+        }
+    }
+    
+    // id isn't a property - so the change needs to be reported
+    public void updateTaskId(final TaskData task) {
+        final String oldId = indexedId.get(task);
+        if (oldId == null || oldId.equals(task.getId())) {
+            return;
+        }
+
+        removeFromId(task, oldId);
+        indexedId.put(task, task.getId());
+        tasksById.computeIfAbsent(task.getId(), (t) -> new ArrayList<>(1)).add(task);
+    }
+    
+    private void removeFromId(final TaskData task, final String id) {
+        final List<TaskData> idTasks = tasksById.get(id);
+        if (idTasks != null) {
+            idTasks.remove(task);
+            if (idTasks.isEmpty()) {
+                tasksById.remove(id);
+            }
+        }
+    }
+    
+    public TaskData getTaskForId(final String taskId) {
+        final List<TaskData> idTasks = tasksById.get(taskId);
+        if (idTasks == null || idTasks.isEmpty()) {
+            return null;
+        }
+        return idTasks.get(0);
+    }
+    
+    public Set<TaskData> getTasksForNote(final Note note) {
+        final Set<TaskData> result = tasksByNote.get(note);
+        if (result == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(result);
+    }
+    
+    public Set<TaskData> getTasksForStatus(final TaskData.TaskStatus status) {
+        return Collections.unmodifiableSet(tasksByStatus.get(status));
+    }
+    
+    public Set<TaskData> getTasksForCompletion(final boolean completed) {
+        return Collections.unmodifiableSet(completed ? completedTasks : openTasks);
+    }
+    
+    public TaskCount getTaskCount(final Note note) {
+        final Set<TaskData> noteTasks = tasksByNote.get(note);
+        if (noteTasks == null) {
+            return new TaskCount(0, 0);
+        }
+
+        long closedTasks = 0;
+        for (TaskData task : noteTasks) {
+            if (task.isCompleted()) {
+                closedTasks++;
+            }
+        }
+        return new TaskCount(noteTasks.size() - closedTasks, closedTasks);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.tasks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import tf.ownnote.ui.helper.XStreamIndexFile;
+
+/**
+ * Persistent store of the tasks found in each note file.
+ * 
+ * Per task we store id, text position and raw text. The raw text includes the checkbox and 
+ * the html comment with status, priority, due date, comment and tags - so parsing it gives 
+ * the same task as parsing the note would, without reading the note.
+ * 
+ * Status, priority, due date, comment and tags are deliberately not stored as separate values:
+ * TaskData can only be created by parsing its text, so separate values would need a second way of
+ * creating tasks that has to be kept in sync with the parser - and the raw text is needed anyway 
+ * to find & replace the task in the note later on.
+ * 
+ * Entries are keyed by file name and only valid as long as size and last modified time of the file
+ * are unchanged. Notes without tasks have an entry as well - so we know we don't need to read them.
+ * 
+ * @author thomas
+ */
+public class TaskInfoStore {
+    private final static XStreamIndexFile<NoteEntry> TASK_FILE = new XStreamIndexFile<>("task_info.xml", 1, new Class[] {NoteEntry.class, TaskEntry.class}, (xstream) -> {
+        xstream.alias("note", NoteEntry.class);
+        xstream.useAttributeFor(NoteEntry.class, "fileName");
+        xstream.useAttributeFor(NoteEntry.class, "size");
+        xstream.useAttributeFor(NoteEntry.class, "modified");
+        xstream.addImplicitCollection(NoteEntry.class, "tasks");
+
+        xstream.alias("task", TaskEntry.class);
+        xstream.useAttributeFor(TaskEntry.class, "id");
+        xstream.useAttributeFor(TaskEntry.class, "textPos");
+    });
+    
+    private Map<String, NoteEntry> entries = new HashMap<>();
+
+    public static class NoteEntry {
+        private String fileName;
+        private long size;
+        private long modified;
+        private List<TaskEntry> tasks = new ArrayList<>();
+        
+        public NoteEntry() {
+            super();
+        }
+
+        public NoteEntry(final String fileName, final long size, final long modified) {
+            super();
+            
+            this.fileName = fileName;
+            this.size = size;
+            this.modified = modified;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+
+        public List<TaskEntry> getTasks() {
+            // xstream doesn't call the constructor and leaves empty lists as null
+            if (tasks == null) {
+                tasks = new ArrayList<>();
+            }
+            return tasks;
+        }
+        
+        public boolean matches(final long size, final long modified) {
+            return this.size == size && this.modified == modified;
+        }
+    }
+    
+    public static class TaskEntry {
+        private String id;
+        private int textPos;
+        private String rawText;
+        
+        public TaskEntry() {
+            super();
+        }
+
+        public TaskEntry(final String id, final int textPos, final String rawText) {
+            super();
+            
+            this.id = id;
+            this.textPos = textPos;
+            this.rawText = rawText;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getTextPos() {
+            return textPos;
+        }
+
+        public String getRawText() {
+            return rawText;
+        }
+    }
+
+    public TaskInfoStore() {
+        super();
+    }
+    
+    public void clear() {
+        entries = new HashMap<>();
+    }
+    
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    public NoteEntry get(final String fileName) {
+        return entries.get(fileName);
+    }
+    
+    public void put(final NoteEntry entry) {
+        entries.put(entry.getFileName(), entry);
+    }
+    
+    public void load(final String notesPath) {
+        clear();
+        
+        for (NoteEntry entry : TASK_FILE.load(notesPath)) {
+            put(entry);
+        }
+    }
+    
+    public void save(final String notesPath) {
+        TASK_FILE.save(notesPath, entries.values());
+    }
+}
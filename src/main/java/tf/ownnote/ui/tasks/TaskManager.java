@@ -25,7 +25,6 @@
  */
 package tf.ownnote.ui.tasks;
 
-import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
@@ -35,14 +34,15 @@ import java.time.Period;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javafx.application.Platform;
@@ -52,10 +52,14 @@ import javafx.collections.ObservableList;
 import javafx.css.PseudoClass;
 import javafx.scene.Node;
 import tf.helper.javafx.calendarview.CalendarView;
+import tf.ownnote.ui.helper.ContentChange;
 import tf.ownnote.ui.helper.FileContentChangeType;
 import tf.ownnote.ui.helper.FileManager;
 import tf.ownnote.ui.helper.IFileChangeSubscriber;
 import tf.ownnote.ui.helper.IFileContentChangeSubscriber;
+import tf.ownnote.ui.helper.INoteContentConsumer;
+import tf.ownnote.ui.helper.NoteContentAnalyzer;
+import tf.ownnote.ui.helper.NoteHeaderIndex;
 import tf.ownnote.ui.main.OwnNoteEditor;
 import tf.ownnote.ui.notes.Note;
 
@@ -71,13 +75,23 @@ import tf.ownnote.ui.notes.Note;
 public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSubscriber {
     private final static TaskManager INSTANCE = new TaskManager();
     
-    private final static String TASK_DIR = File.separator + "MetaData";
-    private final static String TASK_FILE = TASK_DIR + File.separator + "task_info.xml";
-
     private final static Pattern COMMENT_PATTERN = Pattern.compile("\\<!--.*--\\>");
 
-    // TFE, 20201216: speed up searching in long notes
-    private final static Pattern TASK_PATTERN = Pattern.compile(TaskData.ANY_BOXES, Pattern.LITERAL);
+    // TFE, 20261017: what follows the text of a task and decides where it ends: line separator or the longest checkbox
+    private final static int CHANGE_MARGIN = Math.max(TaskData.CHECKED_BOXES_1.length(), System.lineSeparator().length() + 1);
+    
+    // TFE, 20261017: task positions found in a range of the new content by prepareFileContentChange()
+    private static class ScannedRange {
+        private final int start;
+        private final int end;
+        private final List<Integer> taskPositions;
+        
+        private ScannedRange(final int scanStart, final int scanEnd, final List<Integer> positions) {
+            start = scanStart;
+            end = scanEnd;
+            taskPositions = positions;
+        }
+    }
     
     public static final PseudoClass TASK_COMPLETED = PseudoClass.getPseudoClass("completed");
 
@@ -108,12 +122,18 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
                 p.taskPriorityProperty(), 
                 p.taskStatusProperty()});
     private boolean taskListInitialized = false;
+    // TFE, 20261017: lookups by id, note, status without scanning the whole list
+    private final TaskDataIndex taskIndex = new TaskDataIndex();
+    // TFE, 20261017: tasks per note file from last run - only notes that have changed since need to be parsed
+    private final TaskInfoStore taskInfoStore = new TaskInfoStore();
     
     private boolean inFileChange = false;
     private boolean inStatusChange = false;
     
     private TaskManager() {
         super();
+        
+        taskIndex.attach(taskList);
     }
         
     public static TaskManager getInstance() {
@@ -129,6 +149,29 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
     }
     
     private void initTaskList() {
+        // TFE, 20261017: use what we have found last time for all unchanged notes
+        taskInfoStore.load(FileManager.getInstance().getNotesPath());
+        if (!taskInfoStore.isEmpty()) {
+            final List<TaskData> tasks = new ArrayList<>();
+            for (Note note : FileManager.getInstance().getNotesList()) {
+                final TaskInfoStore.NoteEntry entry = taskInfoStore.get(FileManager.getInstance().buildNoteName(note));
+                final NoteHeaderIndex.Entry fileInfo = FileManager.getInstance().getNoteFileInfo(note);
+
+                if (entry != null && fileInfo != null && entry.matches(fileInfo.getSize(), fileInfo.getModified())) {
+                    tasks.addAll(restoreNoteTasks(note, entry));
+                } else {
+                    // new or changed since last time
+                    final String noteContent = FileManager.getInstance().readNote(note, false).getNoteFileContent();
+                    final Set<TaskData> noteTasks = tasksForNoteAndContent(note, noteContent);
+                    note.getMetaData().setTasks(noteTasks);
+                    tasks.addAll(noteTasks);
+                }
+            }
+            // one change event for the whole lot
+            taskList.addAll(tasks);
+            return;
+        }
+
         // find all notes containing checkbox and parse to create TaskData for them
         final Set<Note> taskNotes = FileManager.getInstance().getNotesWithText(TaskData.ANY_BOXES);
         
@@ -137,6 +180,22 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
         }
     }
     
+    private Set<TaskData> restoreNoteTasks(final Note note, final TaskInfoStore.NoteEntry entry) {
+        final Set<TaskData> result = new HashSet<>();
+
+        for (TaskInfoStore.TaskEntry taskEntry : entry.getTasks()) {
+            // raw text starts with the checkbox - so we can parse it as if it were the note content
+            final TaskData task = new TaskData(note, taskEntry.getRawText(), 0);
+            task.setTextPos(taskEntry.getTextPos());
+            // tasks without html comment get a random id on every parse - keep the one from last time
+            task.setFromString(TaskData.CommentDataInfo.ID, taskEntry.getId());
+            result.add(task);
+        }
+        note.getMetaData().setTasks(result);
+
+        return result;
+    }
+    
     private void initNoteTasks(final Note note) {
         final String noteContent = FileManager.getInstance().readNote(note, false).getNoteFileContent();
 
@@ -151,7 +210,8 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
         final Set<TaskData> result = new HashSet<>();
 
         // iterate over all matches and create TaskData items
-        final List<Integer> textPossssss = findAllOccurences(noteContent);
+        // TFE, 20261017: tasks are found together with links & content issues in one pass
+        final List<Integer> textPossssss = NoteContentAnalyzer.getInstance().getAnalysis(noteContent).getTaskPositions();
         for (int textPos : textPossssss) {
 //            System.out.println("  task found: " + Instant.now());
             result.add(new TaskData(note, noteContent, textPos));
@@ -162,29 +222,16 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
         return result;
     }
     
-    private List<Integer> findAllOccurences(final String text) {
-        final List<Integer> result = new LinkedList<>();
-        
-        if (text.isEmpty()) {
-            return result;
-        }
-        
-        final Matcher matcher = TASK_PATTERN.matcher(text);
-        while (matcher.find()) {
-            result.add(matcher.start());
-        }
+    // TFE, 20261017: only matches starting in [start, end) - but they may extend beyond end
+    private List<Integer> findAllOccurences(final String text, final int start, final int end) {
+        final List<Integer> result = new ArrayList<>();
         
-//        int index = 0;
-//        while (true) {
-//            index = text.indexOf(tofind, index);
-//            if (index != -1) {
-//                result.add(index);
-//                // works here under the assumption that we don't search for e.g. "AA" in "AAA"
-//                index += tofind.length();
-//            } else {
-//                break;
-//            }
-//        }
+        NoteContentAnalyzer.getInstance().analyze(text, start, end, new INoteContentConsumer() {
+            @Override
+            public void foundTask(final int textPos) {
+                result.add(textPos);
+            }
+        });
         
         return result;
     }
@@ -206,6 +253,52 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
     }
     
     public void saveTaskList() {
+        if (!taskListInitialized) {
+            // nothing new to tell - keep what we have
+            return;
+        }
+        
+        taskInfoStore.clear();
+        for (Note note : FileManager.getInstance().getNotesList()) {
+            final NoteHeaderIndex.Entry fileInfo = FileManager.getInstance().getNoteFileInfo(note);
+            if (fileInfo == null || note.hasUnsavedChanges()) {
+                // tasks might not match the file - needs to be parsed next time
+                continue;
+            }
+            
+            final TaskInfoStore.NoteEntry entry = 
+                    new TaskInfoStore.NoteEntry(fileInfo.getFileName(), fileInfo.getSize(), fileInfo.getModified());
+            for (TaskData task : taskIndex.getTasksForNote(note)) {
+                entry.getTasks().add(new TaskInfoStore.TaskEntry(task.getId(), task.getTextPos(), task.getRawText()));
+            }
+            taskInfoStore.put(entry);
+        }
+        
+        taskInfoStore.save(FileManager.getInstance().getNotesPath());
+    }
+    
+    // TFE, 20261017: incremental update for a single note file that has been created outside of the editor
+    public void addNoteTasks(final Note note) {
+        if (!taskListInitialized) {
+            // will be done during lazy loading
+            return;
+        }
+
+        inFileChange = true;
+        initNoteTasks(note);
+        inFileChange = false;
+    }
+    
+    // TFE, 20261017: incremental update for a single note file that has been deleted outside of the editor
+    public void removeNoteTasks(final Note note) {
+        if (!taskListInitialized) {
+            // will be done during lazy loading
+            return;
+        }
+
+        inFileChange = true;
+        taskList.removeAll(taskIndex.getTasksForNote(note));
+        inFileChange = false;
     }
 
     @Override
@@ -219,17 +312,21 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
             return true;
         }
         
+        // TFE, 20261017: created & deleted files are handled via addNoteTasks() / removeNoteTasks() from OwnNoteEditor
+        if (!StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
+            return true;
+        }
+        
         Platform.runLater(() -> {
             inFileChange = true;
             // only act for files not currently shown - that will come via FileContentChange...
-            if (StandardWatchEventKinds.ENTRY_DELETE.equals(eventKind) || StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
-                // file with tasks deleted -> remove tasks from own list
+            if (StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
+                // file with tasks changed -> remove tasks from own list
                 taskList.removeIf((t) -> {
                     return FileManager.getInstance().buildNoteName(t.getNote()).equals(filePath.getFileName().toString());
                 });
-            }
-            if (StandardWatchEventKinds.ENTRY_CREATE.equals(eventKind) || StandardWatchEventKinds.ENTRY_MODIFY.equals(eventKind)) {
-                // new file -> scan for tasks and update own list (similar to #2)
+
+                // and scan for tasks and update own list (similar to #2)
                 final Note note = FileManager.getInstance().getNote(filePath.getFileName().toString());
                 // TFE, 20201027: make sure we don't try to work on temp files which have been deleted in the meantime...
                 if (note != null) {
@@ -246,6 +343,38 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
 
     @Override
     public boolean processFileContentChange(final FileContentChangeType changeType, final Note note, final String oldContent, final String newContent) {
+        return processFileContentChange(changeType, note, ContentChange.of(oldContent, newContent));
+    }
+
+    @Override
+    public boolean processFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change) {
+        return processFileContentChange(changeType, note, change, null);
+    }
+
+    @Override
+    public BooleanSupplier prepareFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change) {
+        if (!FileContentChangeType.CONTENT_CHANGED.equals(changeType)) {
+            return IFileContentChangeSubscriber.super.prepareFileContentChange(changeType, note, change);
+        }
+
+        // TFE, 20261017: find the tasks in the changed part of the text on the worker thread
+        // FX thread only needs to apply the differences to the task list
+        final String newContent = change.getNewContent();
+        final int[] changedRange = getChangedRange(change);
+        // tasks touching the change start on the same line - and we rescan at least from here
+        final int scanStart = Math.max(0, Math.min(
+                changedRange[0] - TaskData.ANY_BOXES.length() + 1,
+                newContent.lastIndexOf('\n', changedRange[0] - CHANGE_MARGIN)));
+        final ScannedRange scannedRange = new ScannedRange(scanStart, changedRange[2], findAllOccurences(newContent, scanStart, changedRange[2]));
+
+        return () -> {
+            return processFileContentChange(changeType, note, change, scannedRange);
+        };
+    }
+    
+    private boolean processFileContentChange(final FileContentChangeType changeType, final Note note, final ContentChange change, final ScannedRange scannedRange) {
+        final String oldContent = change.getOldContent();
+        final String newContent = change.getNewContent();
 //        System.out.println("processFileContentChange: " + changeType + ", " + note.getNoteName()+ ", \n\"" + oldContent + "\n\", \n\"" + newContent + "\".");
         if (inFileChange) {
             return true;
@@ -255,36 +384,47 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
 
         inFileChange = true;
         if (FileContentChangeType.CONTENT_CHANGED.equals(changeType)) {
+            // TFE, 20261017: only rescan the part of the text that has been changed
+            // tasks before the change are unchanged, tasks after only need to be shifted
+            final Set<TaskData> oldTasks = new LinkedHashSet<>();
+            // TFE, 20261017: range comes with the change - no need to compare the full contents
+            final int[] changedRange = getChangedRange(change);
+            final int rescanStart = splitTasksForChange(tasksForNote(note), oldContent, newContent, changedRange, oldTasks);
+
             // rescan text for tasks and update tasklist accordingly
-            final Set<TaskData> newTasks = tasksForNoteAndContent(note, newContent);
+            final Set<TaskData> newTasks = new HashSet<>();
+            for (int textPos : getTaskPositions(newContent, rescanStart, changedRange[2], scannedRange)) {
+                newTasks.add(new TaskData(note, newContent, textPos));
+            }
 //            System.out.println(" newTasks found: " + Instant.now());
 //            for (TaskData newTask: new ArrayList<>(newTasks)) {
 //                System.out.println("newTask: " + newTask.getId() + ", " + newTask.getEventDescription());
 //            }
-            final Set<TaskData> oldTasks = tasksForNote(note);
 //            System.out.println(" oldTasks found: " + Instant.now());
 //            for (TaskData oldTask: new ArrayList<>(oldTasks)) {
 //                System.out.println("oldTask: " + oldTask.getId() + ", " + oldTask.getEventDescription());
 //            }
             
             // compare old a new to minimize change impact on observable list
+            // TFE, 20261017: lookup via maps instead of streaming over the old tasks for each new task
+            final Map<String, List<TaskData>> oldById = groupTasks(oldTasks, TaskData::getId);
+            final Map<String, List<TaskData>> oldByDescription = groupTasks(oldTasks, TaskData::getDescription);
             // 1: same description = only pos & selected might have changed
             // takes care of all changes before & after task
             for (TaskData newTask: new ArrayList<>(newTasks)) {
                 // TFE, 20210120: lets use id if we find it :-)
-                Optional<TaskData> oldnew = oldTasks.stream().filter((t) -> {
-                    return t.getId().equals(newTask.getId());
-                }).findFirst();
+                TaskData oldTask = firstTask(oldById, newTask.getId());
 
                 // fallback: find by text
-                if (oldnew.isEmpty()) {
-                    oldnew = oldTasks.stream().filter((t) -> {
-                        return t.getDescription().equals(newTask.getDescription());
-                    }).findFirst();
+                if (oldTask == null) {
+                    oldTask = firstTask(oldByDescription, newTask.getDescription());
                 }
                 
-                if (oldnew.isPresent()) {
-                    final TaskData oldTask = oldnew.get();
+                if (oldTask != null) {
+                    // remove first - setHtmlText() changes the description
+                    removeTask(oldById, oldTask.getId(), oldTask);
+                    removeTask(oldByDescription, oldTask.getDescription(), oldTask);
+
                     oldTask.setTextPos(newTask.getTextPos());
                     oldTask.setCompleted(newTask.isCompleted());
                     // TFE, 20210119: we also have raw text now as well!
@@ -294,21 +434,21 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
                     
                     // nothing more to be done here
                     newTasks.remove(newTask);
-                    oldTasks.remove(oldnew.get());
+                    oldTasks.remove(oldTask);
                 }
             }
 //            System.out.println(" same description checked: " + Instant.now());
             
             // 2. same position but different description = description & selected might have changed
             // takes care of all changes inside task
+            final Map<Integer, List<TaskData>> oldByPos = groupTasks(oldTasks, TaskData::getTextPos);
             for (TaskData newTask: new ArrayList<>(newTasks)) {
-                Optional<TaskData> oldnew = oldTasks.stream().filter((t) -> {
-                    // TFE, 20220712: id already checked under #1
-                    return (t.getTextPos() == newTask.getTextPos());
-                }).findFirst();
+                // TFE, 20220712: id already checked under #1
+                final TaskData oldTask = firstTask(oldByPos, newTask.getTextPos());
                 
-                if (oldnew.isPresent()) {
-                    final TaskData oldTask = oldnew.get();
+                if (oldTask != null) {
+                    removeTask(oldByPos, oldTask.getTextPos(), oldTask);
+
                     oldTask.setCompleted(newTask.isCompleted());
                     // TFE, 20210119: we also have raw text now as well!
                     oldTask.setRawText(newTask.getRawText());
@@ -418,6 +558,129 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
         return true;
     }
     
+    // task positions in the range - from the scan done by prepareFileContentChange() if it covers the range
+    private List<Integer> getTaskPositions(final String content, final int start, final int end, final ScannedRange scannedRange) {
+        if (scannedRange == null || start < scannedRange.start || end != scannedRange.end) {
+            return findAllOccurences(content, start, end);
+        }
+        
+        final List<Integer> result = new ArrayList<>();
+        for (int textPos : scannedRange.taskPositions) {
+            if (textPos >= start) {
+                result.add(textPos);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Range of the text that has been changed: everything before is common prefix, everything after common suffix.
+     * 
+     * @param oldContent content before the change
+     * @param newContent content after the change
+     * @return start of the change, end of the change in old content, end of the change in new content
+     */
+    protected static int[] getChangedRange(final String oldContent, final String newContent) {
+        return getChangedRange(ContentChange.of(oldContent, newContent));
+    }
+    
+    private static int[] getChangedRange(final ContentChange change) {
+        final String oldContent = change.getOldContent();
+        final String newContent = change.getNewContent();
+
+        final int[] result = {change.getStart(), change.getOldEnd(), change.getNewEnd()};
+        // TFE, 20261017: the end of a task depends on the line separator - any \r around the change and we rescan everything
+        if (containsChar(oldContent, '\r', result[0] - 1, result[1] + 1) || containsChar(newContent, '\r', result[0] - 1, result[2] + 1)) {
+            result[0] = 0;
+            result[1] = oldContent.length();
+            result[2] = newContent.length();
+        }
+        
+        return result;
+    }
+    
+    private static boolean containsChar(final String text, final char c, final int start, final int end) {
+        for (int i = Math.max(0, start); i < Math.min(text.length(), end); i++) {
+            if (text.charAt(i) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Split the current tasks of a note into the ones not affected by the change and the ones that need to be rescanned.
+     * 
+     * Tasks before the change are kept as they are, tasks after the change are shifted to their new position.
+     * 
+     * @param noteTasks current tasks of the note
+     * @param oldContent content before the change
+     * @param newContent content after the change
+     * @param changedRange result of getChangedRange
+     * @param changedTasks tasks that need to be compared against the rescanned ones
+     * @return position in the new content from where tasks need to be rescanned
+     */
+    private int splitTasksForChange(
+            final Set<TaskData> noteTasks, 
+            final String oldContent, 
+            final String newContent, 
+            final int[] changedRange,
+            final Set<TaskData> changedTasks) {
+        final int changeStart = changedRange[0];
+        final int shift = changedRange[2] - changedRange[1];
+        
+        final List<TaskData> shiftedTasks = new ArrayList<>();
+        int rescanStart = Math.max(0, changeStart - TaskData.ANY_BOXES.length() + 1);
+        for (TaskData task : noteTasks) {
+            // task text & end of task text (line separator or start of next checkbox) must be in the unchanged part
+            final int taskEnd = task.getTextPos() + task.getRawText().length();
+            if (!oldContent.startsWith(task.getRawText(), task.getTextPos())) {
+                // tasks don't match the old content - no way to be smart here
+                changedTasks.clear();
+                changedTasks.addAll(noteTasks);
+                changedRange[2] = newContent.length();
+                return 0;
+            } else if (taskEnd + CHANGE_MARGIN <= changeStart) {
+                // before the change - nothing to do
+            } else if (task.getTextPos() >= changedRange[1]) {
+                // after the change - only the position has changed
+                shiftedTasks.add(task);
+            } else {
+                changedTasks.add(task);
+                rescanStart = Math.min(rescanStart, task.getTextPos());
+            }
+        }
+        
+        for (TaskData task : shiftedTasks) {
+            task.setTextPos(task.getTextPos() + shift);
+        }
+        
+        return rescanStart;
+    }
+    
+    private static <K> Map<K, List<TaskData>> groupTasks(final Set<TaskData> tasks, final Function<TaskData, K> key) {
+        final Map<K, List<TaskData>> result = new HashMap<>();
+        for (TaskData task : tasks) {
+            result.computeIfAbsent(key.apply(task), (k) -> new ArrayList<>(1)).add(task);
+        }
+        return result;
+    }
+    
+    private static <K> TaskData firstTask(final Map<K, List<TaskData>> tasks, final K key) {
+        final List<TaskData> keyTasks = tasks.get(key);
+        if (keyTasks == null || keyTasks.isEmpty()) {
+            return null;
+        }
+        return keyTasks.get(0);
+    }
+    
+    private static <K> void removeTask(final Map<K, List<TaskData>> tasks, final K key, final TaskData task) {
+        final List<TaskData> keyTasks = tasks.get(key);
+        if (keyTasks != null) {
+            keyTasks.remove(task);
+        }
+    }
+    
     public void processTaskCompletedChanged(final TaskData task) {
         if (isProcessing()) {
             return;
@@ -655,34 +918,34 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
     }
     
     public TaskCount getTaskCount(final Note note) {
-        // first all tasks for this note
-        final List<TaskData> noteTasks = getTaskList().stream().filter((t) -> {
-            return t.getNote().equals(note);
-        }).collect(Collectors.toList());
-        
-        final long closedTasks = noteTasks.stream().filter((t) -> {
-            return t.isCompleted();
-        }).count();
-        
-        return new TaskCount(noteTasks.size() - closedTasks, closedTasks);
+        // make sure lazy loading has happened
+        getTaskList();
+
+        return taskIndex.getTaskCount(note);
     }
     
     public TaskData taskForId(final String taskId) {
-        final Optional<TaskData> result = getTaskList().stream().filter((t) -> {
-            return t.getId().equals(taskId);
-        }).findFirst();
-        
-        if (result.isPresent()) {
-            return result.get();
-        } else {
-            return null;
-        }
+        getTaskList();
+
+        return taskIndex.getTaskForId(taskId);
     }
     
     public Set<TaskData> tasksForNote(final Note note) {
-        return getTaskList().stream().filter((t) -> {
-            return t.getNote().equals(note);
-        }).collect(Collectors.toCollection(LinkedHashSet::new));
+        getTaskList();
+
+        return new LinkedHashSet<>(taskIndex.getTasksForNote(note));
+    }
+    
+    public Set<TaskData> tasksForStatus(final TaskData.TaskStatus status) {
+        getTaskList();
+
+        return new LinkedHashSet<>(taskIndex.getTasksForStatus(status));
+    }
+    
+    public Set<TaskData> tasksForCompletion(final boolean completed) {
+        getTaskList();
+
+        return new LinkedHashSet<>(taskIndex.getTasksForCompletion(completed));
     }
     
     protected boolean resolveDuplicateTaskIds(final List<TaskData> tasks) {
@@ -706,6 +969,7 @@ public class TaskManager implements IFileChangeSubscriber, IFileContentChangeSub
             for (TaskData duplicateTask: new ArrayList<>(duplicateTasks)) {
                 // update task id
                 duplicateTask.randomId();
+                taskIndex.updateTaskId(duplicateTask);
             }
         }
         
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.commentdata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestCommentDataCodec {
+    private final static String EXISTING_DATA = 
+            "eNpVz8sKgzAQBdBfkewT5hGNXhC66he03UsR7KJVjPT7m9BHKszmcpjhzrAsl3GNt/nRm8apsdY+3zn2Zpvm+xAPxC6NkGjFAcRQAfBF/aEkCVAqyFI2O3hBLXuUjD4jM7j9Q1+wBQWwLyidoyZjXQlBG9S8LxQ+mG4ShPNX12lY47j15nw62ta8AHq0QH4=";
+    
+    private static String getData(final int size, final long seed) {
+        final Random random = new Random(seed);
+        final StringBuilder result = new StringBuilder(size);
+        while (result.length() < size) {
+            result.append("tag=\"").append(random.nextInt(1000)).append("\u00e4\u00f6\u00fc\"").append(CommentDataMapper.COMMENT_DATA_SEP);
+        }
+        return result.toString();
+    }
+    
+    @Test
+    public void testExistingData() throws DataFormatException {
+        final String content = "data=\"" + EXISTING_DATA + "\"";
+        final String data = CommentDataCodec.decode(content, 6, content.length() - 1);
+        
+        Assertions.assertTrue(data.startsWith("appVersion=\"6.3\"---versions=\"thomas@01.01.2023 17:01:32:::"));
+        Assertions.assertTrue(data.endsWith("---charset=\"UTF-8\""));
+    }
+    
+    @Test
+    public void testRoundtrip() throws DataFormatException {
+        final String small = getData(100, 1);
+        String encoded = CommentDataCodec.encode(small);
+        Assertions.assertEquals(small, CommentDataCodec.decode(encoded, 0, encoded.length()));
+
+        // larger than the 32KB we used to have as buffer
+        final String large = getData(100000, 2);
+        encoded = CommentDataCodec.encode(large);
+        Assertions.assertEquals(large, CommentDataCodec.decode(encoded, 0, encoded.length()));
+    }
+    
+    @Test
+    public void testCorruptData() {
+        // misplaced padding isn't valid base64
+        Assertions.assertThrows(DataFormatException.class, () -> {
+            CommentDataCodec.decode("eNpV=z8s", 0, 8);
+        });
+        // valid base64 but not deflated
+        Assertions.assertThrows(DataFormatException.class, () -> {
+            CommentDataCodec.decode("AAAA", 0, 4);
+        });
+    }
+    
+    @Test
+    public void testParallel() throws InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final String data = getData(1000 + i * 100, i);
+                results.add(executor.submit(() -> {
+                    final String encoded = CommentDataCodec.encode(data);
+                    return data.equals(CommentDataCodec.decode(encoded, 0, encoded.length()));
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                Assertions.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
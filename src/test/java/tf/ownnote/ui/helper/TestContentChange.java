@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestContentChange {
+    @Test
+    public void testDelta() {
+        ContentChange change = new ContentChange("abcdef", 3, 3, "TEST");
+        Assertions.assertEquals("abcTESTdef", change.getNewContent());
+        Assertions.assertEquals(7, change.getNewEnd());
+        // built only once
+        Assertions.assertSame(change.getNewContent(), change.getNewContent());
+
+        change = new ContentChange("abcTESTdef", 3, 7, "");
+        Assertions.assertEquals("abcdef", change.getNewContent());
+        Assertions.assertEquals(3, change.getNewEnd());
+
+        change = new ContentChange("abc", 0, 3, "xyz");
+        Assertions.assertEquals("xyz", change.getNewContent());
+
+        Assertions.assertTrue(new ContentChange("abc", 1, 1, "").isEmpty());
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ContentChange("abc", 2, 4, "x");
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ContentChange("abc", 2, 1, "x");
+        });
+    }
+
+    @Test
+    public void testFullContent() {
+        ContentChange change = ContentChange.of("abcdef", "abcTESTdef");
+        Assertions.assertEquals(3, change.getStart());
+        Assertions.assertEquals(3, change.getOldEnd());
+        Assertions.assertEquals(7, change.getNewEnd());
+        Assertions.assertEquals("TEST", change.getInserted());
+
+        change = ContentChange.of("aa", "aaa");
+        Assertions.assertEquals(2, change.getStart());
+        Assertions.assertEquals(2, change.getOldEnd());
+        Assertions.assertEquals("a", change.getInserted());
+
+        Assertions.assertTrue(ContentChange.of("abc", "abc").isEmpty());
+    }
+
+    @Test
+    public void testMerge() {
+        // insert after delete before
+        ContentChange first = ContentChange.of("abcdef", "abcXdef");
+        ContentChange merged = first.merge(ContentChange.of("abcXdef", "bcXdef"));
+        Assertions.assertEquals("abcdef", merged.getOldContent());
+        Assertions.assertEquals("bcXdef", merged.getNewContent());
+        Assertions.assertEquals(0, merged.getStart());
+        Assertions.assertEquals(3, merged.getOldEnd());
+        Assertions.assertEquals("bcX", merged.getInserted());
+
+        // typing: one range only
+        first = new ContentChange("abc", 3, 3, "d");
+        merged = first.merge(new ContentChange(first.getNewContent(), 4, 4, "e"));
+        Assertions.assertEquals("abcde", merged.getNewContent());
+        Assertions.assertEquals(3, merged.getStart());
+        Assertions.assertEquals(3, merged.getOldEnd());
+        Assertions.assertEquals("de", merged.getInserted());
+
+        // and back again
+        merged = merged.merge(new ContentChange("abcde", 3, 5, ""));
+        Assertions.assertTrue(merged.isEmpty());
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.Watchable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestDirectoryMonitor {
+    private final static Path FILE = Paths.get("[Test] TestTasks.htm");
+    private final static Path OTHER_FILE = Paths.get("[Test] TestLinks.htm");
+    
+    private final static WatchEvent.Kind<Path> CREATE = StandardWatchEventKinds.ENTRY_CREATE;
+    private final static WatchEvent.Kind<Path> MODIFY = StandardWatchEventKinds.ENTRY_MODIFY;
+    private final static WatchEvent.Kind<Path> DELETE = StandardWatchEventKinds.ENTRY_DELETE;
+    
+    // watch key that becomes available after a delay
+    private static class DelayedWatchKey implements WatchKey, Delayed {
+        private final long due;
+        private final List<WatchEvent<?>> events;
+        
+        private DelayedWatchKey(final long delayMillis, final WatchEvent.Kind<Path> kind, final Path path) {
+            due = System.currentTimeMillis() + delayMillis;
+            events = List.of(new WatchEvent<Path>() {
+                @Override
+                public WatchEvent.Kind<Path> kind() {
+                    return kind;
+                }
+
+                @Override
+                public int count() {
+                    return 1;
+                }
+
+                @Override
+                public Path context() {
+                    return path;
+                }
+            });
+        }
+
+        @Override
+        public long getDelay(final TimeUnit unit) {
+            return unit.convert(due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(final Delayed other) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public List<WatchEvent<?>> pollEvents() {
+            return events;
+        }
+
+        @Override
+        public boolean reset() {
+            return true;
+        }
+
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public Watchable watchable() {
+            return null;
+        }
+    }
+    
+    // watch service that hands out the keys once they're due
+    private static class DelayedWatchService implements WatchService {
+        private final DelayQueue<DelayedWatchKey> keys = new DelayQueue<>();
+        
+        private void addEvent(final long delayMillis, final WatchEvent.Kind<Path> kind, final Path path) {
+            keys.add(new DelayedWatchKey(delayMillis, kind, path));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public WatchKey poll() {
+            return keys.poll();
+        }
+
+        @Override
+        public WatchKey poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return keys.poll(timeout, unit);
+        }
+
+        @Override
+        public WatchKey take() throws InterruptedException {
+            return keys.take();
+        }
+    }
+    
+    @SafeVarargs
+    private static Map<Path, WatchEvent.Kind<?>> addEvents(final WatchEvent.Kind<Path> ... kinds) {
+        final Map<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+        for (WatchEvent.Kind<Path> kind : kinds) {
+            DirectoryMonitor.addEvent(events, FILE, kind);
+        }
+        return events;
+    }
+
+    @Test
+    public void testSingleEvents() {
+        Assertions.assertEquals(Map.of(FILE, CREATE), addEvents(CREATE));
+        Assertions.assertEquals(Map.of(FILE, MODIFY), addEvents(MODIFY));
+        Assertions.assertEquals(Map.of(FILE, DELETE), addEvents(DELETE));
+    }
+    
+    @Test
+    public void testCoalesce() {
+        // came and went
+        Assertions.assertTrue(addEvents(CREATE, DELETE).isEmpty());
+        Assertions.assertTrue(addEvents(CREATE, MODIFY, DELETE).isEmpty());
+        // still new
+        Assertions.assertEquals(Map.of(FILE, CREATE), addEvents(CREATE, MODIFY));
+        Assertions.assertEquals(Map.of(FILE, CREATE), addEvents(CREATE, DELETE, CREATE));
+        // replaced
+        Assertions.assertEquals(Map.of(FILE, MODIFY), addEvents(DELETE, CREATE));
+        Assertions.assertEquals(Map.of(FILE, MODIFY), addEvents(DELETE, CREATE, MODIFY));
+        // gone
+        Assertions.assertEquals(Map.of(FILE, DELETE), addEvents(MODIFY, DELETE));
+        Assertions.assertEquals(Map.of(FILE, DELETE), addEvents(DELETE, MODIFY));
+        // changed
+        Assertions.assertEquals(Map.of(FILE, MODIFY), addEvents(MODIFY, MODIFY));
+        Assertions.assertEquals(Map.of(FILE, MODIFY), addEvents(MODIFY, CREATE));
+    }
+    
+    @Test
+    public void testFilesAreSeparate() {
+        final Map<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+        DirectoryMonitor.addEvent(events, OTHER_FILE, MODIFY);
+        DirectoryMonitor.addEvent(events, FILE, CREATE);
+        DirectoryMonitor.addEvent(events, OTHER_FILE, DELETE);
+        DirectoryMonitor.addEvent(events, FILE, MODIFY);
+        
+        Assertions.assertEquals(Map.of(OTHER_FILE, DELETE, FILE, CREATE), events);
+        // order of the first event for each file
+        Assertions.assertEquals(List.of(OTHER_FILE, FILE), List.copyOf(events.keySet()));
+    }
+    
+    @Test
+    public void testDebounceWindow() throws InterruptedException {
+        final DelayedWatchService service = new DelayedWatchService();
+        service.addEvent(0, DELETE, FILE);
+        // within the window after the first event
+        service.addEvent(50, CREATE, FILE);
+        // way after the window
+        service.addEvent(2000, MODIFY, OTHER_FILE);
+        
+        final Map<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+        DirectoryMonitor.collectEvents(service, 500, events);
+        Assertions.assertEquals(Map.of(FILE, MODIFY), events);
+        
+        events.clear();
+        DirectoryMonitor.collectEvents(service, 500, events);
+        Assertions.assertEquals(Map.of(OTHER_FILE, MODIFY), events);
+    }
+    
+    @Test
+    public void testNoDebounce() throws InterruptedException {
+        final DelayedWatchService service = new DelayedWatchService();
+        service.addEvent(0, CREATE, FILE);
+        service.addEvent(500, DELETE, FILE);
+        
+        // without a window only what is already there gets picked up
+        final Map<Path, WatchEvent.Kind<?>> events = new LinkedHashMap<>();
+        DirectoryMonitor.collectEvents(service, 0, events);
+        Assertions.assertEquals(Map.of(FILE, CREATE), events);
+        
+        events.clear();
+        DirectoryMonitor.collectEvents(service, 0, events);
+        Assertions.assertEquals(Map.of(FILE, DELETE), events);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tf.ownnote.ui.notes.NoteMetaData;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestImageAttachments {
+    private final static byte[] IMAGE_DATA = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13};
+    private final static String IMAGE_BASE64 = Base64.getEncoder().encodeToString(IMAGE_DATA);
+
+    private Path notesPath;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        notesPath = Files.createTempDirectory("ownNoteTest");
+
+        FileManager.getInstance().setCallback(null);
+        FileManager.getInstance().initNotesPath(notesPath.toString());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(notesPath.toFile());
+    }
+
+    @Test
+    public void testStoreImage() throws IOException {
+        final String fileName = ImageAttachments.getInstance().storeImage(IMAGE_DATA, "image/png");
+        Assertions.assertTrue(fileName.matches("[0-9a-f]{64}\\.png"));
+        Assertions.assertTrue(new File(NoteMetaData.getAttachmentPath() + fileName).exists());
+
+        // same content, same file
+        Assertions.assertEquals(fileName, ImageAttachments.getInstance().storeImage(IMAGE_DATA, "image/png"));
+        Assertions.assertEquals(1, new File(NoteMetaData.getAttachmentPath()).list().length);
+
+        Assertions.assertEquals("jpg", ImageAttachments.getExtension("image/jpeg"));
+        Assertions.assertEquals("svg", ImageAttachments.getExtension("image/svg+xml"));
+        Assertions.assertEquals("icon", ImageAttachments.getExtension("image/x-icon"));
+    }
+
+    @Test
+    public void testExternalizeImages() {
+        final String image = "<img src=\"data:image/png;base64," + IMAGE_BASE64 + "\" width=\"10\">";
+        final String content = "<p>before</p>" + image + "<p>between</p>" + image + "<p>after</p>";
+
+        final String newContent = ImageAttachments.getInstance().externalizeImages(content);
+        Assertions.assertFalse(newContent.contains("base64"));
+        Assertions.assertTrue(newContent.startsWith("<p>before</p><img src=\"file:"));
+        Assertions.assertTrue(newContent.contains(".png\" loading=\"lazy\" width=\"10\"><p>between</p>"));
+        Assertions.assertTrue(newContent.endsWith("<p>after</p>"));
+        // both images are the same file
+        Assertions.assertEquals(1, new File(NoteMetaData.getAttachmentPath()).list().length);
+
+        // nothing to do
+        Assertions.assertSame(newContent, ImageAttachments.getInstance().externalizeImages(newContent));
+        Assertions.assertSame(newContent, ImageAttachments.getInstance().updateImagePaths(newContent));
+    }
+
+    @Test
+    public void testUpdateImagePaths() {
+        final String name = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef.png";
+        final String content = "<p><img src=\"file:///somewhere/else/Attachments/" + name + "\" loading=\"lazy\"></p>";
+
+        final String newContent = ImageAttachments.getInstance().updateImagePaths(content);
+        Assertions.assertEquals(
+                "<p><img src=\"" + ImageAttachments.getInstance().getImageUrl(name) + "\" loading=\"lazy\"></p>", 
+                newContent);
+
+        // other file urls aren't touched
+        final String link = "<p><a href=\"file:///somewhere/else/Attachments/test.pdf\">test</a></p>";
+        Assertions.assertSame(link, ImageAttachments.getInstance().updateImagePaths(link));
+    }
+}
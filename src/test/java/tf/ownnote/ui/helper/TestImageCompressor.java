@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestImageCompressor {
+    private final static String BIG_IMAGE = "bigAAAAAAAAAAAA";
+    private final static String SMALL_IMAGE = "bigA";
+    private final static String TINY_IMAGE = "tinyAAAA";
+    private final static String OTHER_IMAGE = "otherAAAAAAA";
+    
+    // what has been passed to the compression: type, width & height
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    
+    // big images get smaller, tiny images get bigger and others stay as they are
+    private final ImageCompressor compressor = new ImageCompressor((imageData, imageType, width, height) -> {
+        calls.add(imageType + ":" + width + "x" + height);
+        
+        if (BIG_IMAGE.equals(imageData)) {
+            return SMALL_IMAGE;
+        } else if (TINY_IMAGE.equals(imageData)) {
+            return TINY_IMAGE + "AAAAAAAA";
+        } else {
+            return imageData;
+        }
+    });
+    
+    private static String getImage(final String type, final String data, final String attributesBefore, final String attributesAfter) {
+        return "<img " + attributesBefore + "src=\"data:image/" + type + ";base64," + data + "\"" + attributesAfter + ">";
+    }
+    
+    @BeforeEach
+    public void setUp() {
+        calls.clear();
+    }
+
+    @Test
+    public void testOnlySmallerImages() {
+        final String content = 
+                "<p>" + getImage("png", TINY_IMAGE, "", "") + "</p>" + 
+                "<p>" + getImage("png", BIG_IMAGE, "", "") + "</p>" + 
+                "<p>" + getImage("png", OTHER_IMAGE, "", "") + "</p>";
+        final String expected = 
+                "<p>" + getImage("png", TINY_IMAGE, "", "") + "</p>" + 
+                "<p>" + getImage("png", SMALL_IMAGE, "", "") + "</p>" + 
+                "<p>" + getImage("png", OTHER_IMAGE, "", "") + "</p>";
+
+        Assertions.assertEquals(expected, compressor.compressImages(content, null));
+        Assertions.assertEquals(3, calls.size());
+    }
+    
+    @Test
+    public void testGifIsSkipped() {
+        final String content = "<p>" + getImage("gif", BIG_IMAGE, "", "") + "</p>";
+
+        Assertions.assertSame(content, compressor.compressImages(content, null));
+        Assertions.assertTrue(calls.isEmpty());
+    }
+    
+    @Test
+    public void testImageSize() {
+        // before src
+        compressor.compressImages(getImage("png", OTHER_IMAGE, "width=\"10\" height=\"20\" ", ""), null);
+        // after src
+        compressor.compressImages(getImage("jpeg", OTHER_IMAGE, "", " width=\"30\" height='40'"), null);
+        // one before, one after
+        compressor.compressImages(getImage("png", OTHER_IMAGE, "height=\"60\" ", " width=\"50\""), null);
+        // not set at all - and no mixup with other attributes
+        compressor.compressImages(getImage("png", OTHER_IMAGE, "data-width=\"70\" ", ""), null);
+        // can't be parsed - image is left alone
+        compressor.compressImages(getImage("png", BIG_IMAGE, "width=\"auto\" ", ""), null);
+
+        Assertions.assertEquals(List.of("png:10x20", "jpeg:30x40", "png:50x60", "png:-1x-1"), calls);
+    }
+    
+    @Test
+    public void testUnchangedContent() {
+        final String noImages = "<p>nothing to see here</p>";
+        Assertions.assertSame(noImages, compressor.compressImages(noImages, null));
+
+        final String noGain = "<p>" + getImage("png", TINY_IMAGE, "", "") + getImage("png", OTHER_IMAGE, "", "") + "</p>";
+        Assertions.assertSame(noGain, compressor.compressImages(noGain, null));
+        
+        // only changed contents are new instances
+        final String changed = "<p>" + getImage("png", BIG_IMAGE, "", "") + "</p>";
+        final List<String> result = compressor.compressImages(List.of(noImages, changed, noGain), null);
+        Assertions.assertSame(noImages, result.get(0));
+        Assertions.assertEquals("<p>" + getImage("png", SMALL_IMAGE, "", "") + "</p>", result.get(1));
+        Assertions.assertSame(noGain, result.get(2));
+    }
+    
+    @Test
+    public void testProgress() {
+        final String content = "<p>" + getImage("png", BIG_IMAGE, "", "") + getImage("png", OTHER_IMAGE, "", "") + "</p>";
+        
+        final List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+        compressor.compressImages(content, (count, total) -> {
+            Assertions.assertEquals(2, total.intValue());
+            done.add(count);
+        });
+        
+        Collections.sort(done);
+        Assertions.assertEquals(List.of(1, 2), done);
+    }
+}
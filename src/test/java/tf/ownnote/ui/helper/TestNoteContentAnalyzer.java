@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestNoteContentAnalyzer {
+    private final static String CONTENT = 
+            "<p><input type=\"checkbox\" /><!-- id=\"b659e1dc2728\"---status=\"OPEN\" -->task 1</p>\n" +
+            "<p><a href=\"file:///[Test] TestTasks.htm\" target=\"dummy\" data-note=\"yes\">[Test] TestTasks</a> and " + 
+            "<a href='file:///[Test] TestVerify_OK.htm' target='dummy' data-note='yes'>[Test] TestVerify_OK</a></p>\n" +
+            "<p><img src=\"data:image/png;base64,iVBORw0KGgo\" alt=\"cool\" /></p>\n" +
+            "<p><input type=\"checkbox\" checked=\"checked\" />task 2</p>";
+    
+    @Test
+    public void testAnalysis() {
+        final NoteContentAnalysis analysis = NoteContentAnalyzer.getInstance().getAnalysis(CONTENT);
+        
+        Assertions.assertEquals(Arrays.asList(3, CONTENT.lastIndexOf("<input")), analysis.getTaskPositions());
+        // two links in the same line
+        Assertions.assertEquals(Arrays.asList("[Test] TestTasks.htm", "[Test] TestVerify_OK.htm"), analysis.getNoteLinks());
+        Assertions.assertEquals(1, analysis.getImages().size());
+        final int[] image = analysis.getImages().get(0);
+        Assertions.assertEquals("iVBORw0KGgo", CONTENT.substring(image[1], image[2]));
+        Assertions.assertEquals(1, analysis.getComments().size());
+        Assertions.assertTrue(analysis.getIssues().isEmpty());
+        
+        // same content, same result
+        Assertions.assertSame(analysis, NoteContentAnalyzer.getInstance().getAnalysis(CONTENT));
+    }
+    
+    @Test
+    public void testIssues() {
+        final String content = "<input type=\"checkbox\" value=\"salami\"><!-- id=\"abc\" --><!-- id=\"abc\" -->";
+        final NoteContentAnalysis analysis = NoteContentAnalyzer.getInstance().getAnalysis(content);
+
+        final List<VerifyNoteContent.ContentIssues> issues = new ArrayList<>();
+        for (NoteContentAnalysis.Issue issue : analysis.getIssues()) {
+            issues.add(issue.getIssue());
+        }
+        Assertions.assertEquals(Arrays.asList(
+                VerifyNoteContent.ContentIssues.ADDITIONAL_CHECKBOX_ATTRIBUTES, 
+                VerifyNoteContent.ContentIssues.REPEATED_METADATA,
+                VerifyNoteContent.ContentIssues.DUPLICATE_METADATA_ID), issues);
+    }
+    
+    @Test
+    public void testRange() {
+        final List<Integer> tasks = new ArrayList<>();
+        NoteContentAnalyzer.getInstance().analyze(CONTENT, 10, CONTENT.length(), new INoteContentConsumer() {
+            @Override
+            public void foundTask(final int textPos) {
+                tasks.add(textPos);
+            }
+        });
+        
+        Assertions.assertEquals(Arrays.asList(CONTENT.lastIndexOf("<input")), tasks);
+    }
+}
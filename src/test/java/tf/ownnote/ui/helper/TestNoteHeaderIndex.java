@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2014ff Thomas Feuster
+ *  All rights reserved.
+ *  
+ *  Redistribution and use in source and binary forms, with or without
+ *  modification, are permitted provided that the following conditions
+ *  1. Redistributions of source code must retain the above copyright
+ *     notice, this list of conditions and the following disclaimer.
+ *  2. Redistributions in binary form must reproduce the above copyright
+ *     notice, this list of conditions and the following disclaimer in the
+ *     documentation and/or other materials provided with the distribution.
+ *  3. The name of the author may not be used to endorse or promote products
+ *     derived from this software without specific prior written permission.
+ *  
+ *  THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ *  IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ *  OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ *  IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ *  INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ *  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ *  DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ *  THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ *  (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ *  THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestNoteHeaderIndex {
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    public void testSaveLoad() {
+        final NoteHeaderIndex index = new NoteHeaderIndex();
+        index.put(new NoteHeaderIndex.Entry("[Test] Note1.htm", 1234L, 5678L, new String[] {"appVersion=\"6.3\"", "tags=\"Tag1:::Tag2\""}));
+        index.put(new NoteHeaderIndex.Entry("[Test] Note2.htm", 4321L, 8765L, null));
+        index.save(tempDir.toString());
+        Assertions.assertTrue(new File(tempDir.toString() + File.separator + "MetaData" + File.separator + "note_index.xml").exists());
+        
+        final NoteHeaderIndex loaded = new NoteHeaderIndex();
+        loaded.load(tempDir.toString());
+        
+        final NoteHeaderIndex.Entry entry1 = loaded.get("[Test] Note1.htm");
+        Assertions.assertNotNull(entry1);
+        Assertions.assertTrue(entry1.matches(1234L, 5678L));
+        Assertions.assertFalse(entry1.matches(1234L, 5679L));
+        Assertions.assertFalse(entry1.matches(1235L, 5678L));
+        Assertions.assertTrue(Arrays.equals(new String[] {"appVersion=\"6.3\"", "tags=\"Tag1:::Tag2\""}, entry1.getHeader()));
+        
+        final NoteHeaderIndex.Entry entry2 = loaded.get("[Test] Note2.htm");
+        Assertions.assertNotNull(entry2);
+        Assertions.assertNull(entry2.getHeader());
+        
+        Assertions.assertNull(loaded.get("[Test] Note3.htm"));
+    }
+    
+    @Test
+    public void testMissingIndex() {
+        final NoteHeaderIndex index = new NoteHeaderIndex();
+        index.load(tempDir.toString());
+        
+        Assertions.assertNull(index.get("[Test] Note1.htm"));
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2014 Thomas Feuster
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. The name of the author may not be used to endorse or promote products
+ *    derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE AUTHOR ``AS IS'' AND ANY EXPRESS OR
+ * IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES
+ * OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY
+ * THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF
+ * THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package tf.ownnote.ui.helper;
+
+import java.util.Arrays;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tf.ownnote.ui.notes.Note;
+import tf.ownnote.ui.tags.TagManager;
+
+/**
+ *
+ * @author thomas
+ */
+public class TestNoteTextIndex {
+    private final NoteTextIndex index = new NoteTextIndex();
+
+    private Note tasksNote;
+    private Note verifyNote;
+
+    @BeforeEach
+    public void setUp() {
+        FileManager.getInstance().setCallback(null);
+        FileManager.getInstance().initNotesPath("src/test/resources/");
+
+        tasksNote = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestTasks");
+        verifyNote = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestVerify_OK");
+
+        index.build(FileManager.getInstance().getNotesList(), (note) -> {
+            return FileManager.getInstance().readNote(note, false).getNoteFileContent();
+        });
+    }
+
+    @Test
+    public void testWords() {
+        Assertions.assertTrue(index.isReady());
+
+        Set<Note> notes = index.getNotesWithWord("resembles");
+        Assertions.assertEquals(1, notes.size());
+        Assertions.assertTrue(notes.contains(tasksNote));
+
+        // part of a word is found as well
+        notes = index.getNotesWithWord("schau");
+        Assertions.assertEquals(4, notes.size());
+        Assertions.assertTrue(notes.contains(verifyNote));
+        Assertions.assertFalse(notes.contains(tasksNote));
+
+        // case sensitive
+        Assertions.assertTrue(index.getNotesWithWord("Resembles").isEmpty());
+
+        // html isn't text
+        Assertions.assertTrue(index.getNotesWithWord("checkbox").isEmpty());
+        Assertions.assertTrue(index.getNotesWithWord("base64").isEmpty());
+    }
+
+    @Test
+    public void testUpdateRemove() {
+        index.updateNote(tasksNote, "<p>Something <b>completely</b> different</p>");
+        Assertions.assertTrue(index.getNotesWithWord("resembles").isEmpty());
+        Assertions.assertTrue(index.getNotesWithWord("completely").contains(tasksNote));
+
+        index.removeNote(tasksNote);
+        Assertions.assertFalse(index.containsNote(tasksNote));
+        Assertions.assertTrue(index.getNotesWithWord("completely").isEmpty());
+        Assertions.assertTrue(index.getNotesWithWord("schauen").contains(verifyNote));
+    }
+
+    @Test
+    public void testReuseIds() {
+        final int docCount = index.getDocCount();
+
+        index.removeNote(tasksNote);
+        index.removeNote(verifyNote);
+        index.updateNote(verifyNote, "<p>Something <b>completely</b> different</p>");
+        index.updateNote(tasksNote, "<p>Nothing different</p>");
+        Assertions.assertEquals(docCount, index.getDocCount());
+
+        Set<Note> notes = index.getNotesWithWord("different");
+        Assertions.assertEquals(2, notes.size());
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertTrue(notes.contains(verifyNote));
+        notes = index.getNotesWithWord("completely");
+        Assertions.assertEquals(1, notes.size());
+        Assertions.assertTrue(notes.contains(verifyNote));
+
+        final int[] ids = new int[] {300, 0, 5, 127, 128, 16384, 70000};
+        final byte[] encoded = NoteTextIndex.encodeIds(ids);
+        Assertions.assertArrayEquals(new int[] {0, 5, 127, 128, 300, 16384, 70000}, NoteTextIndex.decodeIds(encoded));
+        Assertions.assertTrue(encoded.length < ids.length * 2);
+    }
+
+    @Test
+    public void testCandidates() {
+        Assertions.assertEquals(Arrays.asList("foo", "bar"), NoteTextIndex.getRequiredWords("foo.*bar"));
+        Assertions.assertEquals(Arrays.asList("colo", "r"), NoteTextIndex.getRequiredWords("colou?r"));
+        Assertions.assertTrue(NoteTextIndex.getRequiredWords("foo|bar").isEmpty());
+        Assertions.assertTrue(NoteTextIndex.getRequiredWords("\\d+").isEmpty());
+
+        Set<Note> notes = index.getCandidateNotes("Nothing.*task");
+        Assertions.assertEquals(1, notes.size());
+        Assertions.assertTrue(notes.contains(tasksNote));
+
+        Assertions.assertNull(index.getCandidateNotes("[0-9]"));
+        Assertions.assertTrue(index.getCandidateNotes("Nothing.*schauen").isEmpty());
+    }
+
+    @Test
+    public void testExtractText() {
+        Assertions.assertEquals("", NoteTextExtractor.extractText(null));
+        Assertions.assertEquals("a < b & c", NoteTextExtractor.extractText("a < b &amp; c"));
+        Assertions.assertEquals(
+                "\nfoo\n\nbar\n", 
+                NoteTextExtractor.extractText("<p>foo</p><p>bar<input type=\"checkbox\"><!-- id=\"b659e1dc2729\"---status=\"DONE\" --></p>"));
+        // image data & attributes with '>' are skipped
+        Assertions.assertEquals(
+                "before after", 
+                NoteTextExtractor.extractText("before <img src=\"data:image/png;base64,iVBORw0KGgo\" alt=\"a > b\" />after"));
+        Assertions.assertEquals(
+                "<img src=\"data:image/png;base64,\" alt=\"cool\" />", 
+                NoteTextExtractor.stripImageData("<img src=\"data:image/png;base64,iVBORw0KGgo\" alt=\"cool\" />"));
+    }
+
+    @Test
+    public void testLiterals() {
+        Assertions.assertEquals(
+                Arrays.asList("<a href=", "file:///", "htm", " target=", "dummy"), 
+                RegexLiterals.getRequiredLiterals("<a href=['\"]file:///(.*)htm['\"] target=['\"]dummy"));
+        Assertions.assertEquals(Arrays.asList("def"), RegexLiterals.getRequiredLiterals("(abc)?def"));
+        Assertions.assertEquals(Arrays.asList("abc", "def"), RegexLiterals.getRequiredLiterals("(abc)+\\d{0,2}def"));
+        Assertions.assertEquals(Arrays.asList("a.b"), RegexLiterals.getRequiredLiterals("a\\.b"));
+        Assertions.assertTrue(RegexLiterals.getRequiredLiterals("(?i)abc").isEmpty());
+        Assertions.assertTrue(RegexLiterals.getRequiredLiterals("abc|def").isEmpty());
+    }
+
+    @Test
+    public void testContentCandidates() {
+        final Note linksNote = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestLinks");
+
+        Set<Note> notes = index.getContentCandidateNotes("<input type=\"checkbox\"");
+        Assertions.assertEquals(5, notes.size());
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertTrue(notes.contains(verifyNote));
+        Assertions.assertFalse(notes.contains(linksNote));
+
+        notes = index.getContentCandidateNotes("<a href=['\"]file:///(.*)htm['\"] target=['\"]dummy['\"] data-note=['\"]yes['\"]>");
+        Assertions.assertTrue(notes.contains(linksNote));
+        Assertions.assertFalse(notes.contains(tasksNote));
+
+        Assertions.assertNull(index.getContentCandidateNotes(".*"));
+        Assertions.assertTrue(index.getContentCandidateNotes("not in any note").isEmpty());
+    }
+
+    @Test
+    public void testImageDataCandidates() {
+        Assertions.assertEquals(
+                Arrays.asList("<img src=\"data:image/png;base64,", "\" alt"), 
+                NoteTextExtractor.getUnstrippedParts("<img src=\"data:image/png;base64,iVBORw0KGgo\" alt"));
+        Assertions.assertEquals(Arrays.asList("-def, b"), NoteTextExtractor.getUnstrippedParts("abc-def, b"));
+        Assertions.assertTrue(NoteTextExtractor.getUnstrippedParts("iVBORw0KGgo").isEmpty());
+
+        index.updateNote(tasksNote, "<p>before<img src=\"data:image/png;base64,iVBORw0KGgoAAAA\" alt=\"cool\" /></p>");
+        // image data isn't in the index - any note with images is a candidate
+        Set<Note> notes = index.getContentCandidateNotes("iVBORw0KGgo");
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertFalse(notes.contains(verifyNote));
+        notes = index.getContentCandidateNotes("base64,iVBORw0KGgo");
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertFalse(notes.contains(verifyNote));
+        notes = index.getContentCandidateNotes("KGgoAAAA\" alt=\"cool");
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertFalse(notes.contains(verifyNote));
+    }
+
+    @Test
+    public void testSearchSemantics() {
+        // plain search is done on the text of the notes
+        Set<Note> notes = FileManager.getInstance().getNotesWithText("resembles");
+        Assertions.assertEquals(1, notes.size());
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertTrue(FileManager.getInstance().getNotesWithText("checkbox").isEmpty());
+        Assertions.assertTrue(FileManager.getInstance().getNotesWithText("check.ox").isEmpty());
+
+        // html is searched in the content
+        notes = FileManager.getInstance().getNotesWithText("<input type=\"checkbox\"");
+        Assertions.assertTrue(notes.contains(tasksNote));
+        Assertions.assertTrue(notes.contains(verifyNote));
+    }
+}
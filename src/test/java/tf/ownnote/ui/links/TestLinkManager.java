@@ -91,6 +91,7 @@ public class TestLinkManager {
 
         Assertions.assertEquals(0, linkedNote.getMetaData().getLinkedNotes().size(), "You have no links");
         Assertions.assertEquals(1, linkedNote.getMetaData().getLinkingNotes().size(), "You have one backlink");
+        Assertions.assertTrue(LinkManager.getInstance().getNotesLinkingToNote(linkedNote).contains(note));
         
         // undo changes
         note.setNoteEditorContent(originalContent);
@@ -103,6 +104,12 @@ public class TestLinkManager {
 
         Assertions.assertEquals(0, linkedNote.getMetaData().getLinkedNotes().size(), "You have no links");
         Assertions.assertEquals(0, linkedNote.getMetaData().getLinkingNotes().size(), "You have no backlinks");
+        Assertions.assertNull(LinkManager.getInstance().getNotesLinkingToNote(linkedNote));
+        
+        // backlinks of the other linked notes are still there
+        final Note otherNote = FileManager.getInstance().getNote("[Test] TestVerify_OK.htm");
+        Assertions.assertEquals(1, otherNote.getMetaData().getLinkingNotes().size(), "You have one backlink");
+        Assertions.assertTrue(LinkManager.getInstance().getNotesLinkingToNote(otherNote).contains(note));
     }
 
     @Test
@@ -145,4 +152,22 @@ public class TestLinkManager {
             Assertions.assertEquals(1, linkedNoteBacklinks, "You have one backlink");
         }
     }
+
+    @Test
+    public void testReplaceNoteLinks() {
+        final String content = 
+                "<p><a href=\"file:///[Test] Old.htm\" target=\"dummy\" data-note=\"yes\">[Test] Old</a> text [Test] Old and " + 
+                "<a href=\"file:///[Test] Other.htm\" target=\"dummy\" data-note=\"yes\">[Test] Other</a></p>" + 
+                "<p><a href='file:///[Test] Old.htm' target='dummy' data-note='yes'>my text</a></p>";
+        
+        // only the links are changed - not any other text
+        Assertions.assertEquals(
+                "<p><a href=\"file:///[New] Old2.htm\" target=\"dummy\" data-note=\"yes\">[New] Old2</a> text [Test] Old and " + 
+                "<a href=\"file:///[Test] Other.htm\" target=\"dummy\" data-note=\"yes\">[Test] Other</a></p>" + 
+                "<p><a href='file:///[New] Old2.htm' target='dummy' data-note='yes'>my text</a></p>",
+                LinkManager.replaceNoteLinks(content, "[Test] Old.htm", "[New] Old2.htm"));
+        
+        // nothing to do
+        Assertions.assertSame(content, LinkManager.replaceNoteLinks(content, "[Test] Nope.htm", "[New] Old2.htm"));
+    }
 }
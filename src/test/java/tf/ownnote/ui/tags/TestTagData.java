@@ -35,6 +35,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tf.ownnote.ui.helper.FileManager;
+import tf.ownnote.ui.notes.Note;
 
 /**
  *
@@ -155,6 +156,48 @@ public class TestTagData {
         Assertions.assertEquals("CHILD_CHILD_1", localChildChild1.getName(), "Attribue has changed");
     }
     
+    @Test
+    public void testHierarchyNoteCount() {
+        final TagData localRoot = new TagData("ROOT", false, false);
+        final TagData localChild1 = new TagData("CHILD_1", false, false);
+        final TagData localChild2 = new TagData("CHILD_2", false, false);
+        localRoot.getChildren().addAll(localChild1, localChild2);
+        
+        final Note note1 = new Note(localRoot, "Note1");
+        final Note note2 = new Note(localRoot, "Note2");
+        
+        localChild1.getLinkedNotes().addAll(note1, note2);
+        localChild2.getLinkedNotes().add(note1);
+        Assertions.assertEquals(2, localChild1.getLinkesNoteCount(true));
+        Assertions.assertEquals(1, localChild2.getLinkesNoteCount(true));
+        Assertions.assertEquals(0, localRoot.getLinkesNoteCount(false));
+        // notes are only counted once
+        Assertions.assertEquals(2, localRoot.getLinkesNoteCount(true));
+        
+        // still linked to child #2
+        localChild1.getLinkedNotes().remove(note1);
+        Assertions.assertEquals(2, localRoot.getLinkesNoteCount(true));
+        localChild2.getLinkedNotes().remove(note1);
+        Assertions.assertEquals(1, localRoot.getLinkesNoteCount(true));
+        
+        // notes move with their tags
+        final TagData localChildChild1 = new TagData("CHILD_CHILD_1", false, false);
+        localChildChild1.getLinkedNotes().add(note1);
+        localChild2.getChildren().add(localChildChild1);
+        Assertions.assertEquals(1, localChild2.getLinkesNoteCount(true));
+        Assertions.assertEquals(2, localRoot.getLinkesNoteCount(true));
+        
+        localChild1.getChildren().add(localChildChild1);
+        localChild2.getChildren().remove(localChildChild1);
+        Assertions.assertEquals(0, localChild2.getLinkesNoteCount(true));
+        Assertions.assertEquals(2, localChild1.getLinkesNoteCount(true));
+        Assertions.assertEquals(2, localRoot.getLinkesNoteCount(true));
+
+        localChild1.getChildren().remove(localChildChild1);
+        Assertions.assertEquals(1, localChild1.getLinkesNoteCount(true));
+        Assertions.assertEquals(1, localRoot.getLinkesNoteCount(true));
+    }
+    
     @Test
     public void testChildListenerLocal() {
         final TagData localRoot = new TagData("ROOT", false, false);
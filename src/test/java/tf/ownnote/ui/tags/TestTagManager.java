@@ -451,6 +451,32 @@ public class TestTagManager {
         Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(grouspRootTag, level2, TagManager.TagCompare.BY_IDENTITY, true));
     }
     
+    @Test
+    public void testTagHierarchyMove() {
+        final TagData test2 = TagManager.getInstance().getGroupTags(true).get(3);
+        final TagData test3 = TagManager.getInstance().getGroupTags(true).get(4);
+        final TagData level2 = test3.getChildren().get(0);
+        
+        Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(test3, level2, TagManager.TagCompare.BY_IDENTITY, true));
+        Assertions.assertFalse(TagManager.getInstance().compareTagsHierarchy(test2, level2, TagManager.TagCompare.BY_IDENTITY, true));
+        Assertions.assertFalse(TagManager.getInstance().compareTagsHierarchy(level2, test3, TagManager.TagCompare.BY_IDENTITY, true));
+        
+        // changes of the tree are picked up
+        test2.getChildren().add(level2);
+        test3.getChildren().remove(level2);
+        Assertions.assertFalse(TagManager.getInstance().compareTagsHierarchy(test3, level2, TagManager.TagCompare.BY_IDENTITY, true));
+        Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(test2, level2, TagManager.TagCompare.BY_IDENTITY, true));
+        Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(TagManager.getInstance().getRootTag(), level2, TagManager.TagCompare.BY_IDENTITY, true));
+        
+        // tags outside of the tree
+        test2.getChildren().remove(level2);
+        Assertions.assertFalse(TagManager.getInstance().compareTagsHierarchy(test2, level2, TagManager.TagCompare.BY_IDENTITY, true));
+        Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(level2, level2, TagManager.TagCompare.BY_IDENTITY, true));
+
+        test3.getChildren().add(0, level2);
+        Assertions.assertTrue(TagManager.getInstance().compareTagsHierarchy(test3, level2, TagManager.TagCompare.BY_IDENTITY, true));
+    }
+    
     @Test
     public void testTagGroupAssignement() {
         // TFE, 20220404: allow hierarchical group tags - now we need to keep track of each tags position in the hierarchy
@@ -557,6 +583,36 @@ public class TestTagManager {
         Assertions.assertEquals(level2Archive.getParent(), test3Archive);
     }
 
+    @Test
+    public void testTagIndex() {
+        final TagData test3 = TagManager.getInstance().getGroupTags(true).get(4);
+        final TagData level2 = test3.getChildren().get(0);
+        
+        // lookup is cached now
+        Assertions.assertEquals(level2, TagManager.getInstance().groupForExternalName("Test3~Level 2", false));
+        Assertions.assertEquals(level2, TagManager.getInstance().groupForExternalName("Test3~Level 2", false));
+        
+        // rename is picked up
+        level2.setName("Level 2 renamed");
+        Assertions.assertNull(TagManager.getInstance().groupForExternalName("Test3~Level 2", false));
+        Assertions.assertEquals(level2, TagManager.getInstance().groupForExternalName("Test3~Level 2 renamed", false));
+        Assertions.assertEquals(level2, TagManager.getInstance().tagForName("Level 2 renamed", null, false, true));
+        // but only with hierarchy
+        Assertions.assertNull(TagManager.getInstance().tagForName("Level 2 renamed", null, false, false));
+        
+        // remove is picked up
+        test3.getChildren().remove(level2);
+        Assertions.assertNull(TagManager.getInstance().groupForExternalName("Test3~Level 2 renamed", false));
+        Assertions.assertNull(TagManager.getInstance().tagForName("Level 2 renamed", null, false, true));
+
+        // add is picked up
+        test3.getChildren().add(level2);
+        Assertions.assertEquals(level2, TagManager.getInstance().groupForExternalName("Test3~Level 2 renamed", false));
+        
+        level2.setName("Level 2");
+        Assertions.assertEquals(level2, TagManager.getInstance().groupForExternalName("Test3~Level 2", false));
+    }
+
     private void doAddListener(final TagData tagRoot, ListChangeListener<? super TagData> ll) {
         // add listener to my children and to the children of my children
 //        System.out.println("Adding listener " + ll + " to tag " + tagRoot.getName());
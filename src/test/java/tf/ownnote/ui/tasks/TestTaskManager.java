@@ -25,7 +25,9 @@
  */
 package tf.ownnote.ui.tasks;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
@@ -35,6 +37,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tf.ownnote.ui.helper.ContentChange;
 import tf.ownnote.ui.helper.FileContentChangeType;
 import tf.ownnote.ui.helper.FileManager;
 import tf.ownnote.ui.notes.Note;
@@ -45,6 +49,9 @@ import tf.ownnote.ui.tags.TagManager;
  * @author thomas
  */
 public class TestTaskManager {
+    @TempDir
+    Path tempDir;
+
     @BeforeEach
     public void setUp() {
         FileManager.getInstance().setCallback(null);
@@ -242,4 +249,172 @@ public class TestTaskManager {
         // and different from each other
         Assertions.assertFalse(newTaskList.get(5).getId().equals(newTaskList.get(6).getId()));
     }
+    
+    @Test
+    public void testTaskIndex() {
+        final Note note = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestTasks");
+        
+        final String content = FileManager.getInstance().readNote(note, true).getNoteFileContent();
+        final List<TaskData> taskList = TaskManager.getInstance().tasksForNote(note).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        Assertions.assertEquals(5, taskList.size());
+        
+        final TaskData firstTask = taskList.get(0);
+        Assertions.assertSame(firstTask, TaskManager.getInstance().taskForId(firstTask.getId()));
+        Assertions.assertNull(TaskManager.getInstance().taskForId("not an id"));
+
+        final TaskCount taskCount = TaskManager.getInstance().getTaskCount(note);
+        Assertions.assertEquals(5, taskCount.getCount(TaskCount.TaskType.TOTAL));
+        Assertions.assertFalse(firstTask.isCompleted());
+        Assertions.assertTrue(TaskManager.getInstance().tasksForCompletion(false).contains(firstTask));
+        
+        // index needs to follow changes of completion & status
+        final String newContent = content.substring(0, firstTask.getTextPos()) + TaskData.CHECKED_BOXES_1 + content.substring(content.indexOf(firstTask.getHtmlText()));
+        TaskManager.getInstance().processFileContentChange(FileContentChangeType.CONTENT_CHANGED, note, content, newContent);
+        Assertions.assertTrue(firstTask.isCompleted());
+        Assertions.assertTrue(TaskManager.getInstance().tasksForCompletion(true).contains(firstTask));
+        Assertions.assertFalse(TaskManager.getInstance().tasksForCompletion(false).contains(firstTask));
+        Assertions.assertTrue(TaskManager.getInstance().tasksForStatus(TaskData.TaskStatus.DONE).contains(firstTask));
+        Assertions.assertEquals(taskCount.getCount(TaskCount.TaskType.CLOSED) + 1, TaskManager.getInstance().getTaskCount(note).getCount(TaskCount.TaskType.CLOSED));
+        
+        // and of removal of tasks
+        TaskManager.getInstance().removeNoteTasks(note);
+        Assertions.assertTrue(TaskManager.getInstance().tasksForNote(note).isEmpty());
+        Assertions.assertNull(TaskManager.getInstance().taskForId(firstTask.getId()));
+        Assertions.assertFalse(TaskManager.getInstance().tasksForCompletion(true).contains(firstTask));
+    }
+    
+    @Test
+    public void testTaskInfoStore() {
+        final Note note = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestTasks");
+        final String fileName = FileManager.getInstance().buildNoteName(note);
+
+        final TaskInfoStore store = new TaskInfoStore();
+        final TaskInfoStore.NoteEntry entry = new TaskInfoStore.NoteEntry(fileName, 1234L, 5678L);
+        for (TaskData task : TaskManager.getInstance().tasksForNote(note)) {
+            entry.getTasks().add(new TaskInfoStore.TaskEntry(task.getId(), task.getTextPos(), task.getRawText()));
+        }
+        store.put(entry);
+        // notes without tasks are stored as well
+        store.put(new TaskInfoStore.NoteEntry("[Test] TestLinks.htm", 4321L, 8765L));
+        store.save(tempDir.toString());
+        
+        final TaskInfoStore loaded = new TaskInfoStore();
+        loaded.load(tempDir.toString());
+        Assertions.assertFalse(loaded.isEmpty());
+        
+        final TaskInfoStore.NoteEntry loadedEntry = loaded.get(fileName);
+        Assertions.assertNotNull(loadedEntry);
+        Assertions.assertTrue(loadedEntry.matches(1234L, 5678L));
+        Assertions.assertFalse(loadedEntry.matches(1234L, 5679L));
+        Assertions.assertEquals(5, loadedEntry.getTasks().size());
+        Assertions.assertTrue(loaded.get("[Test] TestLinks.htm").getTasks().isEmpty());
+        
+        // raw text is all we need to get the task back
+        for (TaskInfoStore.TaskEntry taskEntry : loadedEntry.getTasks()) {
+            final TaskData task = TaskManager.getInstance().tasksForNote(note).stream().filter((t) -> {
+                return t.getId().equals(taskEntry.getId());
+            }).findFirst().orElse(null);
+            Assertions.assertNotNull(task);
+            
+            final TaskData restored = new TaskData(note, taskEntry.getRawText(), 0);
+            Assertions.assertEquals(task.getDescription(), restored.getDescription());
+            Assertions.assertEquals(task.isCompleted(), restored.isCompleted());
+            Assertions.assertEquals(task.getTaskStatus(), restored.getTaskStatus());
+            Assertions.assertEquals(task.getTaskPriority(), restored.getTaskPriority());
+            Assertions.assertEquals(task.getTextPos(), taskEntry.getTextPos());
+        }
+    }
+    
+    @Test
+    public void testChangedRange() {
+        Assertions.assertArrayEquals(new int[] {3, 3, 7}, TaskManager.getChangedRange("abcdef", "abcTESTdef"));
+        Assertions.assertArrayEquals(new int[] {3, 7, 3}, TaskManager.getChangedRange("abcTESTdef", "abcdef"));
+        Assertions.assertArrayEquals(new int[] {0, 0, 4}, TaskManager.getChangedRange("abc", "TESTabc"));
+        Assertions.assertArrayEquals(new int[] {3, 3, 7}, TaskManager.getChangedRange("abc", "abcTEST"));
+        Assertions.assertArrayEquals(new int[] {3, 3, 3}, TaskManager.getChangedRange("abc", "abc"));
+        // repeated chars: prefix wins
+        Assertions.assertArrayEquals(new int[] {2, 2, 3}, TaskManager.getChangedRange("aa", "aaa"));
+        // line separators around the change - everything
+        Assertions.assertArrayEquals(new int[] {0, 4, 6}, TaskManager.getChangedRange("ab\r\n", "ab\r\r\n\n"));
+    }
+    
+    @Test
+    public void testIncrementalChange() {
+        final Note note = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestTasks");
+        
+        final String content = FileManager.getInstance().readNote(note, true).getNoteFileContent();
+        final List<TaskData> taskList = TaskManager.getInstance().tasksForNote(note).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        Assertions.assertEquals(5, taskList.size());
+        
+        // change in the middle: text of the third task changes, later tasks are shifted
+        final TaskData thirdTask = taskList.get(2);
+        final int textPos = thirdTask.getTextPos() + thirdTask.getRawText().length() - 1;
+        final String newContent = content.substring(0, textPos) + " - TEST - " + content.substring(textPos);
+        TaskManager.getInstance().processFileContentChange(FileContentChangeType.CONTENT_CHANGED, note, content, newContent);
+
+        // has to be the same as parsing everything
+        final List<TaskData> newTaskList = TaskManager.getInstance().tasksForNote(note).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        final List<TaskData> parsedTaskList = TaskManager.getInstance().tasksForNoteAndContent(note, newContent).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        Assertions.assertEquals(parsedTaskList.size(), newTaskList.size());
+        for (int i = 0; i < parsedTaskList.size(); i++) {
+            // same instances as before
+            Assertions.assertSame(taskList.get(i), newTaskList.get(i));
+            Assertions.assertEquals(parsedTaskList.get(i).getTextPos(), newTaskList.get(i).getTextPos());
+            Assertions.assertEquals(parsedTaskList.get(i).getRawText(), newTaskList.get(i).getRawText());
+            Assertions.assertEquals(parsedTaskList.get(i).getDescription(), newTaskList.get(i).getDescription());
+        }
+        Assertions.assertTrue(thirdTask.getRawText().contains(" - TEST - "));
+    }
+
+    @Test
+    public void testPreparedChange() {
+        final Note note = FileManager.getInstance().getNote(TagManager.getInstance().groupForName("Test", false), "TestTasks");
+        
+        final String content = FileManager.getInstance().readNote(note, true).getNoteFileContent();
+        final List<TaskData> taskList = TaskManager.getInstance().tasksForNote(note).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        
+        // text of the second task changes & a new task is added after it
+        final TaskData secondTask = taskList.get(1);
+        final int textPos = secondTask.getTextPos() + secondTask.getRawText().length();
+        final String newContent = content.substring(0, textPos) + " - TEST - " + System.lineSeparator() + 
+                TaskData.UNCHECKED_BOXES_2 + "new task" + content.substring(textPos);
+        
+        // scan happens here...
+        final BooleanSupplier update = TaskManager.getInstance().prepareFileContentChange(
+                FileContentChangeType.CONTENT_CHANGED, note, ContentChange.of(content, newContent));
+        // ... and nothing has changed yet
+        Assertions.assertEquals(taskList.size(), TaskManager.getInstance().tasksForNote(note).size());
+        Assertions.assertTrue(update.getAsBoolean());
+
+        // has to be the same as parsing everything
+        final List<TaskData> newTaskList = TaskManager.getInstance().tasksForNote(note).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        final List<TaskData> parsedTaskList = TaskManager.getInstance().tasksForNoteAndContent(note, newContent).stream().sorted((o1, o2) -> {
+            return Integer.compare(o1.getTextPos(), o2.getTextPos());
+        }).collect(Collectors.toList());
+        Assertions.assertEquals(taskList.size() + 1, newTaskList.size());
+        Assertions.assertEquals(parsedTaskList.size(), newTaskList.size());
+        for (int i = 0; i < parsedTaskList.size(); i++) {
+            Assertions.assertEquals(parsedTaskList.get(i).getTextPos(), newTaskList.get(i).getTextPos());
+            Assertions.assertEquals(parsedTaskList.get(i).getRawText(), newTaskList.get(i).getRawText());
+        }
+        Assertions.assertSame(secondTask, newTaskList.get(1));
+        Assertions.assertTrue(secondTask.getRawText().contains(" - TEST - "));
+        
+        // and back again
+        TaskManager.getInstance().prepareFileContentChange(
+                FileContentChangeType.CONTENT_CHANGED, note, ContentChange.of(newContent, content)).getAsBoolean();
+        Assertions.assertEquals(taskList.size(), TaskManager.getInstance().tasksForNote(note).size());
+    }
 }